@@ -0,0 +1,101 @@
+package com.exqudens.hibernate.cfg;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class Settings {
+
+    /**
+     * Assign identity batch ids arithmetically from the first generated key
+     * when the server hands out consecutive auto increment values for a
+     * multi-row insert. Default: false.
+     */
+    public static final String IDENTITY_BLOCK_ALLOCATION;
+
+    /**
+     * Default block size reserved per round trip by the "pooled-table"
+     * strategy, overridable per generator with the "increment_size"
+     * parameter. Default: 1000.
+     */
+    public static final String POOLED_TABLE_INCREMENT_SIZE;
+
+    /**
+     * Node id (0 - 1023) mixed into identifiers of the "time-ordered"
+     * strategy, overridable per generator with the "node_id" parameter. Every
+     * writer node must use a distinct value. Default: 0.
+     */
+    public static final String TIME_ORDERED_NODE_ID;
+
+    /**
+     * Maximum number of identity insert, bulk delete and upsert statements
+     * kept prepared per session connection. Default: 32.
+     */
+    public static final String STATEMENT_CACHE_SIZE;
+
+    /**
+     * Defer MySQL updates until the flush's actions have run and write them
+     * as multi-row {@code insert ... on duplicate key update} statements,
+     * one per updated-column signature and batch. Default: false.
+     */
+    public static final String MULTI_ROW_UPSERT;
+
+    /**
+     * Statement latency in milliseconds the IN list planner aims for when
+     * sizing bulk delete and find-by-ids chunks. Default: 200.
+     */
+    public static final String IN_LIST_TARGET_LATENCY;
+
+    /**
+     * Pad bulk delete and find-by-ids IN lists to power of two lengths by
+     * repeating the last value, so prepared statements and server plans are
+     * reused across list sizes. Default: true.
+     */
+    public static final String IN_LIST_PADDING;
+
+    /**
+     * Number of times a bulk delete chunk that hit a lock wait timeout is
+     * retried, split in halves, under a savepoint. A positive value also
+     * sorts bulk deletes by primary key so concurrent purges lock rows in
+     * the same order. Default: 0 (off).
+     */
+    public static final String BULK_DELETE_RETRIES;
+
+    /**
+     * Number of entities from which the flush write order sort classifies
+     * and buckets entities in parallel on the common fork-join pool.
+     * Default: 50000.
+     */
+    public static final String PARALLEL_SORT_THRESHOLD;
+
+    /**
+     * Number of find-by-ids chunks run at the same time on a factory wide
+     * executor, each on its own read-only session and connection; keep it
+     * below the connection pool size. Callers holding a connection (an
+     * open transaction) always run sequentially. Default: 1 (sequential, on
+     * the calling session).
+     */
+    public static final String FIND_ALL_PARALLELISM;
+
+    private static final Logger LOG;
+
+    static {
+        LOG = LoggerFactory.getLogger(Settings.class);
+        LOG.trace("");
+        IDENTITY_BLOCK_ALLOCATION = "exqudens.hibernate.id.identity_block_allocation";
+        POOLED_TABLE_INCREMENT_SIZE = "exqudens.hibernate.id.pooled_table.increment_size";
+        TIME_ORDERED_NODE_ID = "exqudens.hibernate.id.time_ordered.node_id";
+        STATEMENT_CACHE_SIZE = "exqudens.hibernate.jdbc.statement_cache_size";
+        MULTI_ROW_UPSERT = "exqudens.hibernate.jdbc.multi_row_upsert";
+        IN_LIST_TARGET_LATENCY = "exqudens.hibernate.jdbc.in_list.target_latency_millis";
+        IN_LIST_PADDING = "exqudens.hibernate.jdbc.in_list.padding";
+        BULK_DELETE_RETRIES = "exqudens.hibernate.jdbc.bulk_delete.retries";
+        PARALLEL_SORT_THRESHOLD = "exqudens.hibernate.flush.parallel_sort_threshold";
+        FIND_ALL_PARALLELISM = "exqudens.hibernate.jdbc.find_all.parallelism";
+    }
+
+    private Settings() {
+        super();
+        LOG.trace("");
+    }
+
+}
@@ -23,6 +23,8 @@ public class IdentifierGeneratorStrategyProviderImpl implements IdentifierGenera
         LOG.trace("");
         strategies = new HashMap<>();
         strategies.put("identity", IdentityGeneratorImpl.class);
+        strategies.put("pooled-table", PooledTableGeneratorImpl.class);
+        strategies.put("time-ordered", TimeOrderedGeneratorImpl.class);
     }
 
     @Override
@@ -1,16 +1,9 @@
 package com.exqudens.hibernate.id;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.AbstractMap.SimpleEntry;
-import java.util.Map.Entry;
-import java.util.function.Function;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import org.hibernate.HibernateException;
 import org.hibernate.dialect.Dialect;
@@ -22,6 +15,11 @@ import org.hibernate.id.insert.InsertGeneratedIdentifierDelegate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.exqudens.hibernate.integrator.IntegratorImpl;
+import com.exqudens.hibernate.listener.SessionEventListenerImpl;
+import com.exqudens.hibernate.util.TreeLevels;
+import com.exqudens.hibernate.util.WriteOrder;
+
 public class IdentityGeneratorImpl extends IdentityGenerator {
 
     private static final Logger LOG;
@@ -31,20 +29,19 @@ public class IdentityGeneratorImpl extends IdentityGenerator {
         LOG.trace("");
     }
 
-    private final Map<String, List<Object>> cache;
-
     public IdentityGeneratorImpl() {
         super();
         LOG.trace("");
-        this.cache = new HashMap<>();
     }
 
     @Override
-    public synchronized Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
         LOG.trace("");
-        String sessionIdentifierExt = session.getSessionIdentifier().toString() + System.identityHashCode(session);
-        cache.putIfAbsent(sessionIdentifierExt, new LinkedList<>());
-        cache.get(sessionIdentifierExt).add(object);
+        if (!SessionEventListenerImpl.isSupported(session)) {
+            return super.generate(session, object);
+        }
+        SessionEventListenerImpl listener = SessionEventListenerImpl.get(session);
+        listener.getInsertions(this).add(object);
         return super.generate(session, object);
     }
 
@@ -62,47 +59,54 @@ public class IdentityGeneratorImpl extends IdentityGenerator {
             return new InsertGeneratedIdentifierDelegateImpl(
                     this,
                     com.exqudens.hibernate.persister.PostInsertIdentityPersister.class.cast(persister),
-                    MySQLDialect.class.cast(dialect)
+                    MySQLDialect.class.cast(dialect),
+                    super.getInsertGeneratedIdentifierDelegate(persister, dialect, isGetGeneratedKeysEnabled)
             );
         }
         return super.getInsertGeneratedIdentifierDelegate(persister, dialect, isGetGeneratedKeysEnabled);
     }
 
-    synchronized List<Object> remove(String sessionIdentifier, int jdbcBatchSize) {
-        List<Object> all = cache.get(sessionIdentifier);
-        List<List<Object>> partition = partition(all, jdbcBatchSize);
-        if (partition.size() > 1) {
-            List<Object> first = partition.remove(0);
-            List<Object> other = partition.stream().flatMap(List::stream).collect(Collectors.toList());
-            cache.put(sessionIdentifier, other);
-            return first;
-        } else {
-            cache.remove(sessionIdentifier);
-            return partition.get(0);
+    List<Object> remove(SharedSessionContractImplementor session, Object entity, int size) {
+        SessionEventListenerImpl listener = SessionEventListenerImpl.get(session);
+        List<Object> all = listener.getInsertions(this);
+        List<Object> batch = new ArrayList<>(size);
+        batch.add(entity);
+        WriteOrder writeOrder = IntegratorImpl.INSTANCE.getWriteOrder(session.getFactory());
+        if (
+                writeOrder.isSelfReferencing(session.getEntityPersister(null, entity).getEntityName())
+        ) {
+            // only entities whose parent already has its id can share the
+            // batch, so self-referencing trees go out one level at a time
+            TreeLevels levels = listener.getLevels().computeIfAbsent(this, k -> new TreeLevels(session));
+            boolean found = false;
+            Iterator<Object> iterator = all.iterator();
+            while (iterator.hasNext() && (!found || batch.size() < size)) {
+                Object next = iterator.next();
+                if (next == entity) {
+                    iterator.remove();
+                    found = true;
+                } else if (batch.size() < size && levels.isReady(next)) {
+                    batch.add(next);
+                    iterator.remove();
+                }
+            }
+            return batch;
         }
-    }
-
-    private <E> List<List<E>> partition(List<E> list, int size) {
-        Function<Entry<Integer, E>, Integer> classifier;
-        classifier = (Entry<Integer, E> e) -> {
-            int number = e.getKey().intValue();
-            if (number % size != 0) {
-                return number / size * size + size;
-            } else {
-                return number;
+        if (!all.isEmpty() && all.get(0) == entity) {
+            all.remove(0);
+        } else {
+            Iterator<Object> iterator = all.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next() == entity) {
+                    iterator.remove();
+                    break;
+                }
             }
-        };
-        Function<Entry<Integer, E>, E> mapper = (Entry<Integer, E> e) -> e.getValue();
-        return IntStream.range(0, list.size())
-        .mapToObj(i -> new SimpleEntry<>(i + 1, list.get(i)))
-        .collect(
-            Collectors.groupingBy(
-                classifier,
-                LinkedHashMap::new,
-                Collectors.mapping(mapper, Collectors.toList())
-            )
-        ).values().stream()
-        .collect(Collectors.toList());
+        }
+        while (batch.size() < size && !all.isEmpty()) {
+            batch.add(all.remove(0));
+        }
+        return batch;
     }
 
 }
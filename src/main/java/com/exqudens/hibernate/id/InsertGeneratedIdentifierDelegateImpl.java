@@ -3,23 +3,29 @@ package com.exqudens.hibernate.id;
 import java.io.Serializable;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.sql.SQLException;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
-import java.util.Set;
 
+import org.hibernate.HibernateException;
 import org.hibernate.dialect.MySQLDialect;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerationException;
 import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.IntegralDataTypeHolder;
 import org.hibernate.id.insert.Binder;
 import org.hibernate.id.insert.IdentifierGeneratingInsert;
 import org.hibernate.id.insert.InsertGeneratedIdentifierDelegate;
+import org.hibernate.internal.util.config.ConfigurationHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.exqudens.hibernate.cfg.Settings;
+import com.exqudens.hibernate.integrator.IntegratorImpl;
+import com.exqudens.hibernate.jdbc.MultiRowInsert;
+import com.exqudens.hibernate.jdbc.ServerVariables;
+import com.exqudens.hibernate.listener.SessionEventListenerImpl;
 import com.exqudens.hibernate.persister.PostInsertIdentityPersister;
 
 public class InsertGeneratedIdentifierDelegateImpl implements InsertGeneratedIdentifierDelegate {
@@ -34,19 +40,21 @@ public class InsertGeneratedIdentifierDelegateImpl implements InsertGeneratedIde
     private final IdentityGeneratorImpl generator;
     private final PostInsertIdentityPersister persister;
     private final MySQLDialect dialect;
-    private final Map<String, Queue<Serializable>> cache;
+    private final InsertGeneratedIdentifierDelegate singleRowDelegate;
+    private volatile Boolean blockAllocation;
 
     public InsertGeneratedIdentifierDelegateImpl(
             IdentityGeneratorImpl generator, 
             PostInsertIdentityPersister persister, 
-            MySQLDialect dialect
+            MySQLDialect dialect,
+            InsertGeneratedIdentifierDelegate singleRowDelegate
     ) {
         super();
         LOG.trace("");
         this.generator = generator;
         this.persister = persister;
         this.dialect = dialect;
-        this.cache = new HashMap<>();
+        this.singleRowDelegate = singleRowDelegate;
     }
 
     @Override
@@ -58,28 +66,27 @@ public class InsertGeneratedIdentifierDelegateImpl implements InsertGeneratedIde
     }
 
     @Override
-    public synchronized Serializable performInsert(String insertSQL, SharedSessionContractImplementor session, Binder binder) {
+    public Serializable performInsert(String insertSQL, SharedSessionContractImplementor session, Binder binder) {
         LOG.trace("");
-        Set<String> emptyQueueKeys = new HashSet<>();
-        for (String sessionIdentifier : cache.keySet()) {
-            if (cache.get(sessionIdentifier).isEmpty()) {
-                emptyQueueKeys.add(sessionIdentifier);
-            }
-        }
-        for (String sessionIdentifier : emptyQueueKeys) {
-            cache.remove(sessionIdentifier);
+        if (!SessionEventListenerImpl.isSupported(session)) {
+            return singleRowDelegate.performInsert(insertSQL, session, binder);
         }
-        String sessionIdentifierExt = session.getSessionIdentifier().toString() + System.identityHashCode(session);
-        if (!cache.containsKey(sessionIdentifierExt) || cache.get(sessionIdentifierExt).isEmpty()) {
-            Queue<Serializable> queue = createQueue(
-                insertSQL,
-                session,
-                generator.remove(sessionIdentifierExt, getJdbcBatchSize(session))
+        // per session state is only touched by the session's own thread, so the
+        // jdbc round trip below runs without holding any shared lock
+        Object entity = binder.getEntity();
+        Map<Object, Serializable> identifiers = SessionEventListenerImpl.get(session).getIdentifiers(this);
+        if (!identifiers.containsKey(entity)) {
+            MultiRowInsert insert = new MultiRowInsert(insertSQL);
+            identifiers.putAll(
+                createIdentifiers(
+                    insert,
+                    session,
+                    generator.remove(session, entity, getMaxRows(insert, session))
+                )
             );
-            LOG.debug("{}", queue);
-            cache.putIfAbsent(sessionIdentifierExt, queue);
+            LOG.debug("{}", identifiers.values());
         }
-        Serializable serializable = cache.get(sessionIdentifierExt).remove();
+        Serializable serializable = identifiers.remove(entity);
         return serializable;
     }
 
@@ -89,57 +96,133 @@ public class InsertGeneratedIdentifierDelegateImpl implements InsertGeneratedIde
         : session.getFactory().getSessionFactoryOptions().getJdbcBatchSize();
     }
 
-    private Queue<Serializable> createQueue(
-            String insertSQL,
+    private int getMaxRows(MultiRowInsert insert, SharedSessionContractImplementor session) {
+        return insert.getMaxRows(
+                getJdbcBatchSize(session),
+                persister.getIdentityInsertRowLength(),
+                getServerVariables().getMaxAllowedPacket()
+        );
+    }
+
+    private Map<Object, Serializable> createIdentifiers(
+            MultiRowInsert insert,
             SharedSessionContractImplementor session,
-            List<Object> objects
+            List<Object> entities
     ) {
         LOG.trace("");
-        if (insertSQL == null || session == null || objects == null) {
-            return null;
-        }
+        String sql = insert.toStatementString(entities.size());
         PreparedStatement ps = null;
         ResultSet rs = null;
         try {
-            ps = session
-            .getJdbcCoordinator()
-            .getLogicalConnection()
-            .getPhysicalConnection()
-            .prepareStatement(insertSQL, PreparedStatement.RETURN_GENERATED_KEYS);
-            for (Object entity : objects) {
-
-                persister.dehydrateIdentityInsert(entity, ps, session);
-                session.getJdbcServices().getSqlStatementLogger().logStatement(insertSQL);
-
-                ps.addBatch();
+            ps = SessionEventListenerImpl
+            .get(session)
+            .getStatementCache()
+            .prepareStatement(
+                    session.getJdbcCoordinator().getLogicalConnection().getPhysicalConnection(),
+                    sql,
+                    PreparedStatement.RETURN_GENERATED_KEYS
+            );
+            int index = 1;
+            for (Object entity : entities) {
+                index = persister.dehydrateIdentityInsert(entity, ps, index, session);
             }
-            ps.executeBatch();
+            session.getJdbcServices().getSqlStatementLogger().logStatement(sql);
+            int rowCount = ps.executeUpdate();
             rs = ps.getGeneratedKeys();
-            Queue<Serializable> queue = new PriorityQueue<>();
-            while (rs.next()) {
-                Serializable serializable = IdentifierGeneratorHelper.get(
-                        rs,
-                        persister.getRootTableKeyColumnNames()[0],
-                        persister.getIdentifierType(),
-                        session.getJdbcServices().getJdbcEnvironment().getDialect()
-                );
-                queue.add(serializable);
+            if (isBlockAllocation() && rowCount == entities.size()) {
+                return allocateIdentifiers(rs, entities);
+            } else {
+                return extractIdentifiers(rs, entities, session);
             }
-            return queue;
         } catch (RuntimeException e) {
-            LOG.error(insertSQL, e);
+            LOG.error(sql, e);
+            SessionEventListenerImpl.get(session).getStatementCache().evict(ps);
             throw e;
         } catch (Exception e) {
-            LOG.error(insertSQL, e);
+            LOG.error(sql, e);
+            SessionEventListenerImpl.get(session).getStatementCache().evict(ps);
             throw new RuntimeException(e);
         } finally {
-            releaseStatement(session, ps, rs);
+            releaseStatement(session, rs);
         }
     }
 
-    private void releaseStatement(SharedSessionContractImplementor session, PreparedStatement ps, ResultSet rs) {
+    private Map<Object, Serializable> allocateIdentifiers(ResultSet rs, List<Object> entities) throws SQLException {
         LOG.trace("");
-        session.getJdbcCoordinator().getLogicalConnection().getResourceRegistry().release(rs, ps);
+        if (!rs.next()) {
+            throw new HibernateException("no generated keys: " + persister.getEntityName());
+        }
+        IntegralDataTypeHolder holder = IdentifierGeneratorHelper
+        .getIntegralDataTypeHolder(persister.getIdentifierType().getReturnedClass())
+        .initialize(rs.getLong(1));
+        Map<Object, Serializable> identifiers = new IdentityHashMap<>(entities.size());
+        for (Object entity : entities) {
+            identifiers.put(entity, Serializable.class.cast(holder.makeValueThenAdd(getServerVariables().getAutoIncrementIncrement())));
+        }
+        return identifiers;
+    }
+
+    private Map<Object, Serializable> extractIdentifiers(
+            ResultSet rs,
+            List<Object> entities,
+            SharedSessionContractImplementor session
+    ) throws SQLException {
+        LOG.trace("");
+        Map<Object, Serializable> identifiers = new IdentityHashMap<>(entities.size());
+        for (Object entity : entities) {
+            if (!rs.next()) {
+                throw new HibernateException("generated keys count < " + entities.size() + ": " + persister.getEntityName());
+            }
+            Serializable serializable = IdentifierGeneratorHelper.get(
+                    rs,
+                    persister.getRootTableKeyColumnNames()[0],
+                    persister.getIdentifierType(),
+                    session.getJdbcServices().getJdbcEnvironment().getDialect()
+            );
+            identifiers.put(entity, serializable);
+        }
+        return identifiers;
+    }
+
+    private ServerVariables getServerVariables() {
+        return IntegratorImpl.INSTANCE.getServerVariables(persister.getFactory());
+    }
+
+    private boolean isBlockAllocation() {
+        if (blockAllocation == null) {
+            blockAllocation = readBlockAllocation();
+        }
+        return blockAllocation;
+    }
+
+    private boolean readBlockAllocation() {
+        LOG.trace("");
+        if (!ConfigurationHelper.getBoolean(Settings.IDENTITY_BLOCK_ALLOCATION, persister.getFactory().getProperties(), false)) {
+            return false;
+        }
+        ServerVariables serverVariables = getServerVariables();
+        if (!serverVariables.isConsecutiveAutoIncrement()) {
+            LOG.warn("{}: innodb_autoinc_lock_mode={}, using generated keys", persister.getEntityName(), serverVariables.getInnodbAutoincLockMode());
+            return false;
+        }
+        try {
+            IdentifierGeneratorHelper.getIntegralDataTypeHolder(persister.getIdentifierType().getReturnedClass());
+            return true;
+        } catch (IdentifierGenerationException e) {
+            LOG.warn("{}: {}, using generated keys", persister.getEntityName(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void releaseStatement(SharedSessionContractImplementor session, ResultSet rs) {
+        LOG.trace("");
+        if (rs != null) {
+            try {
+                rs.close();
+            } catch (SQLException e) {
+                LOG.warn(e.getMessage(), e);
+            }
+        }
         session.getJdbcCoordinator().afterStatementExecution();
     }
 
@@ -0,0 +1,50 @@
+package com.exqudens.hibernate.id;
+
+import java.util.Map;
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exqudens.hibernate.cfg.Settings;
+
+public class PooledTableGeneratorImpl extends TableGenerator {
+
+    public static final int DEFAULT_INCREMENT_SIZE;
+
+    private static final Logger LOG;
+
+    static {
+        LOG = LoggerFactory.getLogger(PooledTableGeneratorImpl.class);
+        LOG.trace("");
+        DEFAULT_INCREMENT_SIZE = 1000;
+    }
+
+    public PooledTableGeneratorImpl() {
+        super();
+        LOG.trace("");
+    }
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        LOG.trace("");
+        Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        Properties p = new Properties();
+        p.putAll(params);
+        p.putIfAbsent(
+                INCREMENT_PARAM,
+                String.valueOf(ConfigurationHelper.getInt(Settings.POOLED_TABLE_INCREMENT_SIZE, settings, DEFAULT_INCREMENT_SIZE))
+        );
+        p.putIfAbsent(OPT_PARAM, StandardOptimizerDescriptor.POOLED.getExternalName());
+        p.putIfAbsent(CONFIG_PREFER_SEGMENT_PER_ENTITY, Boolean.TRUE.toString());
+        super.configure(type, p, serviceRegistry);
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.exqudens.hibernate.id;
+
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exqudens.hibernate.cfg.Settings;
+
+/**
+ * Time ordered {@link Long} or {@link UUID} identifiers, generated without a
+ * database round trip.
+ */
+public class TimeOrderedGeneratorImpl implements IdentifierGenerator, Configurable {
+
+    public static final long EPOCH;
+    public static final String NODE_ID_PARAM;
+    public static final int NODE_ID_BITS;
+    public static final int SEQUENCE_BITS;
+
+    private static final Logger LOG;
+    private static final long MAX_NODE_ID;
+    private static final long SEQUENCE_MASK;
+    private static final AtomicLong LONG_STATE;
+    private static final AtomicLong UUID_STATE;
+
+    static {
+        LOG = LoggerFactory.getLogger(TimeOrderedGeneratorImpl.class);
+        LOG.trace("");
+        EPOCH = 1514764800000L; // 2018-01-01T00:00:00Z
+        NODE_ID_PARAM = "node_id";
+        NODE_ID_BITS = 10;
+        SEQUENCE_BITS = 12;
+        MAX_NODE_ID = (1L << NODE_ID_BITS) - 1;
+        SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+        LONG_STATE = new AtomicLong();
+        UUID_STATE = new AtomicLong();
+    }
+
+    private long nodeId;
+    private boolean uuid;
+
+    public TimeOrderedGeneratorImpl() {
+        super();
+        LOG.trace("");
+    }
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        LOG.trace("");
+        Class<?> returnedClass = type.getReturnedClass();
+        if (UUID.class.equals(returnedClass)) {
+            uuid = true;
+        } else if (Long.class.equals(returnedClass) || long.class.equals(returnedClass)) {
+            uuid = false;
+        } else {
+            throw new MappingException("Unsupported identifier type for time ordered generator: " + returnedClass.getName());
+        }
+        int defaultNodeId = ConfigurationHelper.getInt(
+                Settings.TIME_ORDERED_NODE_ID,
+                serviceRegistry.getService(ConfigurationService.class).getSettings(),
+                0
+        );
+        nodeId = ConfigurationHelper.getInt(NODE_ID_PARAM, params, defaultNodeId);
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new MappingException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        LOG.trace("");
+        if (uuid) {
+            long state = next(UUID_STATE, currentTimeMillis());
+            long timestamp = state >>> SEQUENCE_BITS;
+            long sequence = state & SEQUENCE_MASK;
+            long mostSigBits = (timestamp << 16) | (0x7L << 12) | sequence;
+            long random = ThreadLocalRandom.current().nextLong() >>> (2 + NODE_ID_BITS);
+            long leastSigBits = (0x2L << 62) | (nodeId << (62 - NODE_ID_BITS)) | random;
+            return new UUID(mostSigBits, leastSigBits);
+        } else {
+            long state = next(LONG_STATE, currentTimeMillis() - EPOCH);
+            long timestamp = state >>> SEQUENCE_BITS;
+            long sequence = state & SEQUENCE_MASK;
+            return (timestamp << (NODE_ID_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+        }
+    }
+
+    /**
+     * Wall clock the identifiers are derived from.
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private long next(AtomicLong lastState, long timestamp) {
+        long candidate = timestamp << SEQUENCE_BITS;
+        while (true) {
+            long last = lastState.get();
+            long next = candidate > last ? candidate : last + 1;
+            if (lastState.compareAndSet(last, next)) {
+                if (next != candidate && (next >>> SEQUENCE_BITS) > timestamp + 1000) {
+                    LOG.warn("clock is {} ms behind the last generated identifier", (next >>> SEQUENCE_BITS) - timestamp);
+                }
+                return next;
+            }
+        }
+    }
+
+}
@@ -1,19 +1,43 @@
 package com.exqudens.hibernate.integrator;
 
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.hibernate.boot.Metadata;
+import org.hibernate.engine.jdbc.spi.JdbcServices;
 import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.event.internal.DefaultDeleteEventListener;
 import org.hibernate.event.service.spi.DuplicationStrategy;
 import org.hibernate.event.service.spi.EventListenerRegistry;
 import org.hibernate.event.spi.EventType;
 import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
 import org.hibernate.jpa.event.internal.core.HibernateEntityManagerEventListener;
 import org.hibernate.service.spi.SessionFactoryServiceRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.exqudens.hibernate.cfg.Settings;
+import com.exqudens.hibernate.jdbc.ServerVariables;
+import com.exqudens.hibernate.listener.AutoFlushEventListenerImpl;
 import com.exqudens.hibernate.listener.DeleteEventListenerImpl;
+import com.exqudens.hibernate.listener.FlushEventListenerImpl;
+import com.exqudens.hibernate.listener.SessionEventListenerImpl;
+import com.exqudens.hibernate.util.WriteOrder;
 
+/**
+ * Registers the listeners and keeps the mapping derived state (metadata,
+ * server variables, read on first use, write order), the session listeners
+ * and the find-all executor of every session factory it integrated, from
+ * {@code integrate} until that factory's {@code disintegrate}.
+ */
 public class IntegratorImpl /*extends org.hibernate.jpa.event.spi.JpaIntegrator*/ implements Integrator {
 
     public static final IntegratorImpl INSTANCE;
@@ -27,31 +51,142 @@ public class IntegratorImpl /*extends org.hibernate.jpa.event.spi.JpaIntegrator*
         REPLACE_ORIGINAL_DUPLICATION_STRATEGY = new ReplaceOriginalDuplicationStrategy();
     }
 
-    private Metadata metadata;
+    private final Map<SessionFactoryImplementor, FactoryState> states;
 
     private IntegratorImpl() {
         super();
         LOG.trace("");
+        this.states = new ConcurrentHashMap<>();
     }
 
+    /**
+     * Mapping metadata of the only integrated factory, {@code null} unless
+     * exactly one factory is integrated.
+     */
     public Metadata getMetadata() {
-        return metadata;
+        Iterator<FactoryState> iterator = states.values().iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        FactoryState state = iterator.next();
+        return iterator.hasNext() ? null : state.metadata;
+    }
+
+    /**
+     * Mapping metadata of the factory, {@code null} when it was not
+     * integrated by this integrator.
+     */
+    public Metadata getMetadata(SessionFactoryImplementor sessionFactory) {
+        FactoryState state = states.get(sessionFactory);
+        return state != null ? state.metadata : null;
+    }
+
+    public ServerVariables getServerVariables(SessionFactoryImplementor sessionFactory) {
+        FactoryState state = states.get(sessionFactory);
+        return state != null ? state.getServerVariables() : ServerVariables.DEFAULT;
+    }
+
+    public WriteOrder getWriteOrder(SessionFactoryImplementor sessionFactory) {
+        FactoryState state = states.get(sessionFactory);
+        return state != null ? state.writeOrder : WriteOrder.EMPTY;
+    }
+
+    /**
+     * Flush state of the factory's sessions, {@code null} when the factory was
+     * not integrated by this integrator.
+     */
+    public Map<SharedSessionContractImplementor, SessionEventListenerImpl> getSessionListeners(SessionFactoryImplementor sessionFactory) {
+        FactoryState state = states.get(sessionFactory);
+        return state != null ? state.sessionListeners : null;
+    }
+
+    /**
+     * Executor running the chunks of a parallel find-by-ids, created on first
+     * use with {@link Settings#FIND_ALL_PARALLELISM} daemon threads and shut
+     * down with the factory. {@code null} when the parallelism is 1 or the
+     * factory was not integrated by this integrator.
+     */
+    public ExecutorService getFindAllExecutor(SessionFactoryImplementor sessionFactory) {
+        FactoryState state = states.get(sessionFactory);
+        return state != null ? state.getFindAllExecutor() : null;
     }
 
     @Override
     public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
         LOG.trace("");
-        this.metadata = metadata;
+        states.put(
+                sessionFactory,
+                new FactoryState(
+                        metadata,
+                        serviceRegistry.getService(JdbcServices.class),
+                        WriteOrder.build(metadata),
+                        ConfigurationHelper.getInt(Settings.FIND_ALL_PARALLELISM, sessionFactory.getProperties(), 1)
+                )
+        );
         final EventListenerRegistry eventListenerRegistry = serviceRegistry.getService( EventListenerRegistry.class );
         eventListenerRegistry.addDuplicationStrategy(REPLACE_ORIGINAL_DUPLICATION_STRATEGY);
         eventListenerRegistry.setListeners(EventType.DELETE, new DefaultDeleteEventListener());
         eventListenerRegistry.getEventListenerGroup(EventType.DELETE).prependListener(new DeleteEventListenerImpl());
+        eventListenerRegistry.setListeners(EventType.FLUSH, new FlushEventListenerImpl());
+        eventListenerRegistry.setListeners(EventType.AUTO_FLUSH, new AutoFlushEventListenerImpl());
     }
 
     @Override
     public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
         LOG.trace("");
-        this.metadata = null;
+        FactoryState state = states.remove(sessionFactory);
+        if (state != null) {
+            state.shutdown();
+        }
+    }
+
+    private static class FactoryState {
+
+        private final Metadata metadata;
+        private final JdbcServices jdbcServices;
+        private final WriteOrder writeOrder;
+        private final int findAllParallelism;
+        private final Map<SharedSessionContractImplementor, SessionEventListenerImpl> sessionListeners;
+        private ServerVariables serverVariables;
+        private ExecutorService findAllExecutor;
+        private boolean shutdown;
+
+        private FactoryState(Metadata metadata, JdbcServices jdbcServices, WriteOrder writeOrder, int findAllParallelism) {
+            super();
+            this.metadata = metadata;
+            this.jdbcServices = jdbcServices;
+            this.writeOrder = writeOrder;
+            this.findAllParallelism = findAllParallelism;
+            this.sessionListeners = Collections.synchronizedMap(new WeakHashMap<>());
+        }
+
+        private synchronized ServerVariables getServerVariables() {
+            if (serverVariables == null) {
+                serverVariables = ServerVariables.read(jdbcServices);
+            }
+            return serverVariables;
+        }
+
+        private synchronized ExecutorService getFindAllExecutor() {
+            if (findAllExecutor == null && findAllParallelism > 1 && !shutdown) {
+                AtomicInteger threadCount = new AtomicInteger();
+                findAllExecutor = Executors.newFixedThreadPool(findAllParallelism, runnable -> {
+                    Thread thread = new Thread(runnable, "exqudens-find-all-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            return findAllExecutor;
+        }
+
+        private synchronized void shutdown() {
+            shutdown = true;
+            if (findAllExecutor != null) {
+                findAllExecutor.shutdownNow();
+                findAllExecutor = null;
+            }
+        }
+
     }
 
     private static class ReplaceOriginalDuplicationStrategy implements DuplicationStrategy {
@@ -0,0 +1,150 @@
+package com.exqudens.hibernate.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Number of keys per {@code in (...)} statement, bounded by the server
+ * limits and adapted to the observed latency.
+ */
+public class InListPlanner {
+
+    public static final int DEFAULT_TARGET_LATENCY_MILLIS;
+
+    private static final Logger LOG;
+    private static final int STATEMENT_RESERVE;
+
+    static {
+        LOG = LoggerFactory.getLogger(InListPlanner.class);
+        LOG.trace("");
+        DEFAULT_TARGET_LATENCY_MILLIS = 200;
+        STATEMENT_RESERVE = 1024;
+    }
+
+    private final int maxChunkSize;
+    private final long targetLatencyNanos;
+    private final AtomicInteger chunkSize;
+    private final boolean padding;
+
+    public InListPlanner(
+            int initialChunkSize,
+            int keyColumnCount,
+            long keyLength,
+            ServerVariables serverVariables,
+            long targetLatencyMillis,
+            boolean padding
+    ) {
+        super();
+        LOG.trace("");
+        long rowLength = keyLength + 3L * keyColumnCount + 2;
+        long maxByPacket = (serverVariables.getMaxAllowedPacket() - STATEMENT_RESERVE) / Math.max(rowLength, 1);
+        long maxByPlaceholders = ServerVariables.MAX_PLACEHOLDERS / Math.max(keyColumnCount, 1);
+        this.maxChunkSize = (int) Math.max(Math.min(maxByPacket, maxByPlaceholders), 1);
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(targetLatencyMillis, 1));
+        this.chunkSize = new AtomicInteger(Math.min(Math.max(initialChunkSize, 1), maxChunkSize));
+        this.padding = padding;
+    }
+
+    public int getChunkSize() {
+        return chunkSize.get();
+    }
+
+    public int getMaxChunkSize() {
+        return maxChunkSize;
+    }
+
+    /**
+     * Number of keys per chunk {@link #plan(List)} would use right now.
+     */
+    public int getPlannedChunkSize() {
+        return padding ? Integer.highestOneBit(getChunkSize()) : getChunkSize();
+    }
+
+    public <E> List<List<E>> plan(List<E> list) {
+        if (list == null || list.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int size = getPlannedChunkSize();
+        List<List<E>> chunks = new ArrayList<>((list.size() + size - 1) / size);
+        for (int from = 0; from < list.size(); from += size) {
+            chunks.add(list.subList(from, Math.min(from + size, list.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * Smallest power of two not below {@code size}, capped at the max chunk size.
+     */
+    public int getBucket(int size) {
+        if (size <= 1) {
+            return 1;
+        }
+        long bucket = Long.highestOneBit(size - 1L) << 1;
+        return (int) Math.max(Math.min(bucket, maxChunkSize), size);
+    }
+
+    /**
+     * Length {@link #pad(List)} fills a list of the given size up to.
+     */
+    public int getPaddedSize(int size) {
+        return padding && size > 0 ? getBucket(size) : size;
+    }
+
+    public <E> List<E> pad(List<E> list) {
+        if (list == null || list.isEmpty()) {
+            return list;
+        }
+        int bucket = getPaddedSize(list.size());
+        if (bucket == list.size()) {
+            return list;
+        }
+        List<E> padded = new ArrayList<>(bucket);
+        padded.addAll(list);
+        E last = list.get(list.size() - 1);
+        while (padded.size() < bucket) {
+            padded.add(last);
+        }
+        return padded;
+    }
+
+    /**
+     * Feeds the latency of one executed chunk back into the plan.
+     */
+    public void record(int rows, long nanos) {
+        int current = chunkSize.get();
+        if (rows * 2 < current) {
+            return;
+        }
+        int next = current;
+        if (nanos > targetLatencyNanos) {
+            next = Math.max(current / 2, 1);
+        } else if (nanos * 2 < targetLatencyNanos) {
+            next = (int) Math.min(current * 2L, maxChunkSize);
+        }
+        if (next != current && chunkSize.compareAndSet(current, next)) {
+            LOG.debug("chunk size: {} -> {} ({} ms)", current, next, TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("InListPlanner [chunkSize=");
+        builder.append(chunkSize.get());
+        builder.append(", maxChunkSize=");
+        builder.append(maxChunkSize);
+        builder.append(", targetLatencyNanos=");
+        builder.append(targetLatencyNanos);
+        builder.append(", padding=");
+        builder.append(padding);
+        builder.append("]");
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.exqudens.hibernate.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class MultiRowInsert {
+
+    private static final Logger LOG;
+    private static final String VALUES;
+
+    static {
+        LOG = LoggerFactory.getLogger(MultiRowInsert.class);
+        LOG.trace("");
+        VALUES = "values";
+    }
+
+    private final String insertSQL;
+    private final String head;
+    private final String row;
+    private final String tail;
+    private final int rowParameterCount;
+
+    public MultiRowInsert(String insertSQL) {
+        super();
+        LOG.trace("");
+        int valuesIndex = insertSQL.lastIndexOf(VALUES);
+        if (valuesIndex == -1) {
+            throw new IllegalArgumentException("Not an insert statement: " + insertSQL);
+        }
+        this.insertSQL = insertSQL;
+        this.head = insertSQL.substring(0, valuesIndex + VALUES.length()) + " ";
+        this.row = insertSQL.substring(valuesIndex + VALUES.length()).trim();
+        this.tail = "";
+        this.rowParameterCount = countParameters(row);
+    }
+
+    public MultiRowInsert(String head, String row, String tail) {
+        super();
+        LOG.trace("");
+        this.insertSQL = head + row + tail;
+        this.head = head;
+        this.row = row;
+        this.tail = tail;
+        this.rowParameterCount = countParameters(row);
+    }
+
+    public String getInsertSQL() {
+        return insertSQL;
+    }
+
+    public int getHeadLength() {
+        return head.length() + tail.length();
+    }
+
+    public int getRowLength() {
+        return row.length() + 2;
+    }
+
+    public int getRowParameterCount() {
+        return rowParameterCount;
+    }
+
+    /**
+     * Number of rows that fit in one statement: at most {@code batchSize},
+     * within {@code maxAllowedPacket} when every row takes
+     * {@code rowDataLength} bytes of literal values and within the server
+     * placeholder limit. Never less than 1.
+     */
+    public int getMaxRows(int batchSize, long rowDataLength, long maxAllowedPacket) {
+        long maxRows = Math.max(batchSize, 1);
+        long rowLength = rowDataLength + getRowLength();
+        long packetLength = maxAllowedPacket - getHeadLength();
+        maxRows = Math.min(maxRows, packetLength / Math.max(rowLength, 1));
+        if (rowParameterCount > 0) {
+            maxRows = Math.min(maxRows, ServerVariables.MAX_PLACEHOLDERS / rowParameterCount);
+        }
+        return (int) Math.max(maxRows, 1);
+    }
+
+    public String toStatementString(int rows) {
+        StringBuilder builder = new StringBuilder(getHeadLength() + rows * getRowLength());
+        builder.append(head);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(row);
+        }
+        builder.append(tail);
+        return builder.toString();
+    }
+
+    private int countParameters(String s) {
+        int count = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("MultiRowInsert [insertSQL=");
+        builder.append(insertSQL);
+        builder.append("]");
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.exqudens.hibernate.jdbc;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.jdbc.connections.spi.JdbcConnectionAccess;
+import org.hibernate.engine.jdbc.spi.JdbcServices;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ServerVariables {
+
+    public static final long DEFAULT_MAX_ALLOWED_PACKET;
+    public static final int UNKNOWN_AUTOINC_LOCK_MODE;
+    public static final int MAX_PLACEHOLDERS;
+    public static final ServerVariables DEFAULT;
+
+    private static final Logger LOG;
+
+    static {
+        LOG = LoggerFactory.getLogger(ServerVariables.class);
+        LOG.trace("");
+        DEFAULT_MAX_ALLOWED_PACKET = 4194304L;
+        UNKNOWN_AUTOINC_LOCK_MODE = -1;
+        MAX_PLACEHOLDERS = 65535;
+        DEFAULT = new ServerVariables(DEFAULT_MAX_ALLOWED_PACKET, UNKNOWN_AUTOINC_LOCK_MODE, 1);
+    }
+
+    public static ServerVariables read(JdbcServices jdbcServices) {
+        LOG.trace("");
+        if (jdbcServices == null || !(jdbcServices.getDialect() instanceof MySQLDialect)) {
+            return DEFAULT;
+        }
+        JdbcConnectionAccess connectionAccess = jdbcServices.getBootstrapJdbcConnectionAccess();
+        Connection connection = null;
+        try {
+            connection = connectionAccess.obtainConnection();
+            try (
+                    Statement statement = connection.createStatement();
+                    ResultSet rs = statement.executeQuery(
+                            "select @@max_allowed_packet, @@innodb_autoinc_lock_mode, @@auto_increment_increment"
+                    )
+            ) {
+                if (!rs.next()) {
+                    return DEFAULT;
+                }
+                ServerVariables serverVariables = new ServerVariables(rs.getLong(1), rs.getInt(2), rs.getInt(3));
+                LOG.debug("{}", serverVariables);
+                return serverVariables;
+            }
+        } catch (Exception e) {
+            LOG.warn(e.getMessage(), e);
+            return DEFAULT;
+        } finally {
+            if (connection != null) {
+                try {
+                    connectionAccess.releaseConnection(connection);
+                } catch (Exception e) {
+                    LOG.warn(e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private final long maxAllowedPacket;
+    private final int innodbAutoincLockMode;
+    private final int autoIncrementIncrement;
+
+    public ServerVariables(long maxAllowedPacket, int innodbAutoincLockMode, int autoIncrementIncrement) {
+        super();
+        LOG.trace("");
+        this.maxAllowedPacket = maxAllowedPacket;
+        this.innodbAutoincLockMode = innodbAutoincLockMode;
+        this.autoIncrementIncrement = autoIncrementIncrement;
+    }
+
+    public long getMaxAllowedPacket() {
+        return maxAllowedPacket;
+    }
+
+    public int getInnodbAutoincLockMode() {
+        return innodbAutoincLockMode;
+    }
+
+    public int getAutoIncrementIncrement() {
+        return autoIncrementIncrement;
+    }
+
+    /**
+     * Lock modes 0 (traditional) and 1 (consecutive) reserve one consecutive
+     * range per multi-row insert with a known row count, mode 2 (interleaved)
+     * does not.
+     */
+    public boolean isConsecutiveAutoIncrement() {
+        return innodbAutoincLockMode == 0 || innodbAutoincLockMode == 1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("ServerVariables [maxAllowedPacket=");
+        builder.append(maxAllowedPacket);
+        builder.append(", innodbAutoincLockMode=");
+        builder.append(innodbAutoincLockMode);
+        builder.append(", autoIncrementIncrement=");
+        builder.append(autoIncrementIncrement);
+        builder.append("]");
+        return builder.toString();
+    }
+
+}
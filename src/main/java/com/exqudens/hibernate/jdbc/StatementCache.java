@@ -0,0 +1,165 @@
+package com.exqudens.hibernate.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * LRU cache of prepared statements bound to one physical connection.
+ */
+public class StatementCache {
+
+    public static final int DEFAULT_SIZE;
+
+    private static final Logger LOG;
+    private static final AtomicLong TOTAL_HITS;
+    private static final AtomicLong TOTAL_MISSES;
+
+    static {
+        LOG = LoggerFactory.getLogger(StatementCache.class);
+        LOG.trace("");
+        DEFAULT_SIZE = 32;
+        TOTAL_HITS = new AtomicLong();
+        TOTAL_MISSES = new AtomicLong();
+    }
+
+    public static long getTotalHitCount() {
+        return TOTAL_HITS.get();
+    }
+
+    public static long getTotalMissCount() {
+        return TOTAL_MISSES.get();
+    }
+
+    public static double getTotalHitRate() {
+        return toHitRate(TOTAL_HITS.get(), TOTAL_MISSES.get());
+    }
+
+    private static double toHitRate(long hits, long misses) {
+        return hits + misses == 0 ? 0.0 : (double) hits / (hits + misses);
+    }
+
+    private final Map<StatementKey, PreparedStatement> statements;
+
+    private Connection connection;
+    private long hits;
+    private long misses;
+
+    public StatementCache(int maxSize) {
+        super();
+        LOG.trace("");
+        this.statements = new LinkedHashMap<StatementKey, PreparedStatement>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = -3329101806853006637L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<StatementKey, PreparedStatement> eldest) {
+                if (size() > maxSize) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+
+        };
+    }
+
+    public PreparedStatement prepareStatement(Connection connection, String sql, int autoGeneratedKeys) throws SQLException {
+        LOG.trace("");
+        if (this.connection != connection) {
+            close();
+            this.connection = connection;
+        }
+        StatementKey key = new StatementKey(sql, autoGeneratedKeys);
+        PreparedStatement ps = statements.get(key);
+        if (ps != null && !ps.isClosed()) {
+            ps.clearParameters();
+            ps.clearBatch();
+            hits++;
+            TOTAL_HITS.incrementAndGet();
+            return ps;
+        }
+        misses++;
+        TOTAL_MISSES.incrementAndGet();
+        ps = connection.prepareStatement(sql, autoGeneratedKeys);
+        statements.put(key, ps);
+        return ps;
+    }
+
+    public void evict(PreparedStatement ps) {
+        LOG.trace("");
+        if (ps != null && statements.values().remove(ps)) {
+            closeQuietly(ps);
+        }
+    }
+
+    public long getHitCount() {
+        return hits;
+    }
+
+    public long getMissCount() {
+        return misses;
+    }
+
+    public double getHitRate() {
+        return toHitRate(hits, misses);
+    }
+
+    public void close() {
+        LOG.trace("");
+        if (!statements.isEmpty()) {
+            LOG.debug("statements: {}, hits: {}, misses: {}", statements.size(), hits, misses);
+        }
+        for (PreparedStatement ps : statements.values()) {
+            closeQuietly(ps);
+        }
+        statements.clear();
+        connection = null;
+    }
+
+    private void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (Exception e) {
+            LOG.warn(e.getMessage(), e);
+        }
+    }
+
+    private static class StatementKey {
+
+        private final String sql;
+        private final int autoGeneratedKeys;
+
+        public StatementKey(String sql, int autoGeneratedKeys) {
+            super();
+            this.sql = sql;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof StatementKey)) {
+                return false;
+            }
+            StatementKey that = (StatementKey) o;
+            return autoGeneratedKeys == that.autoGeneratedKeys && Objects.equals(sql, that.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * sql.hashCode() + autoGeneratedKeys;
+        }
+
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.exqudens.hibernate.listener;
+
+import org.hibernate.HibernateException;
+import org.hibernate.event.internal.DefaultAutoFlushEventListener;
+import org.hibernate.event.spi.EventSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exqudens.hibernate.persister.SingleTableEntityPersisterImpl;
+
+public class AutoFlushEventListenerImpl extends DefaultAutoFlushEventListener {
+
+    private static final Logger LOG;
+    private static final long serialVersionUID;
+
+    static {
+        LOG = LoggerFactory.getLogger(AutoFlushEventListenerImpl.class);
+        LOG.trace("");
+        serialVersionUID = -3284529310217063391L;
+    }
+
+    public AutoFlushEventListenerImpl() {
+        super();
+        LOG.trace("");
+    }
+
+    @Override
+    protected void performExecutions(EventSource session) throws HibernateException {
+        LOG.trace("");
+        session.getJdbcCoordinator().flushBeginning();
+        try {
+            super.performExecutions(session);
+            SingleTableEntityPersisterImpl.executeUpserts(session);
+        } finally {
+            session.getJdbcCoordinator().flushEnding();
+        }
+    }
+
+}
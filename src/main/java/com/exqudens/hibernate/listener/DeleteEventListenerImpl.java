@@ -2,11 +2,10 @@ package com.exqudens.hibernate.listener;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.event.spi.DeleteEvent;
 import org.hibernate.event.spi.DeleteEventListener;
 import org.hibernate.event.spi.EventSource;
@@ -24,12 +23,9 @@ public class DeleteEventListenerImpl implements DeleteEventListener {
         serialVersionUID = -1802522419395160778L;
     }
 
-    private final Map<String, List<Object>> cache;
-
     public DeleteEventListenerImpl() {
         super();
         LOG.trace("");
-        cache = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -44,20 +40,24 @@ public class DeleteEventListenerImpl implements DeleteEventListener {
         internalOnDelete(e);
     }
 
-    public synchronized List<Object> remove(String sessionIdentifierExt) {
+    public List<Object> remove(SharedSessionContractImplementor session) {
         LOG.trace("");
-        return cache.remove(sessionIdentifierExt);
+        SessionEventListenerImpl listener = SessionEventListenerImpl.find(session);
+        if (listener == null || listener.getDeletions().isEmpty()) {
+            return null;
+        }
+        List<Object> deletions = new ArrayList<>(listener.getDeletions());
+        listener.getDeletions().clear();
+        return deletions;
     }
 
-    private synchronized void internalOnDelete(DeleteEvent e) {
+    private void internalOnDelete(DeleteEvent e) {
         LOG.trace("");
         if (e.getSession() != null && e.getObject() != null) {
             LOG.trace("e.entity: {}", e.getObject());
             EventSource eventSource = e.getSession();
             Object entity = e.getObject();
-            String sessionIdentifierExt = eventSource.getSessionIdentifier().toString() + System.identityHashCode(eventSource);
-            cache.putIfAbsent(sessionIdentifierExt, new ArrayList<>());
-            cache.get(sessionIdentifierExt).add(entity);
+            SessionEventListenerImpl.get(eventSource).getDeletions().add(entity);
         }
     }
 
@@ -0,0 +1,39 @@
+package com.exqudens.hibernate.listener;
+
+import org.hibernate.HibernateException;
+import org.hibernate.event.internal.DefaultFlushEventListener;
+import org.hibernate.event.spi.EventSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exqudens.hibernate.persister.SingleTableEntityPersisterImpl;
+
+public class FlushEventListenerImpl extends DefaultFlushEventListener {
+
+    private static final Logger LOG;
+    private static final long serialVersionUID;
+
+    static {
+        LOG = LoggerFactory.getLogger(FlushEventListenerImpl.class);
+        LOG.trace("");
+        serialVersionUID = 6039172454391870213L;
+    }
+
+    public FlushEventListenerImpl() {
+        super();
+        LOG.trace("");
+    }
+
+    @Override
+    protected void performExecutions(EventSource session) throws HibernateException {
+        LOG.trace("");
+        session.getJdbcCoordinator().flushBeginning();
+        try {
+            super.performExecutions(session);
+            SingleTableEntityPersisterImpl.executeUpserts(session);
+        } finally {
+            session.getJdbcCoordinator().flushEnding();
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.exqudens.hibernate.listener;
+
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exqudens.hibernate.cfg.Settings;
+import com.exqudens.hibernate.integrator.IntegratorImpl;
+import com.exqudens.hibernate.jdbc.StatementCache;
+import com.exqudens.hibernate.util.TreeLevels;
+
+/**
+ * Per session flush state. The listener is registered on the session the
+ * first time it is needed and kept in the session factory's listener map
+ * until the session ends; only {@link Session}s of factories integrated by
+ * {@link IntegratorImpl} are supported.
+ */
+public class SessionEventListenerImpl extends BaseSessionEventListener {
+
+    private static final Logger LOG;
+    private static final long serialVersionUID;
+
+    static {
+        LOG = LoggerFactory.getLogger(SessionEventListenerImpl.class);
+        LOG.trace("");
+        serialVersionUID = 4420918457043562188L;
+    }
+
+    public static boolean isSupported(SharedSessionContractImplementor session) {
+        return session instanceof Session && IntegratorImpl.INSTANCE.getSessionListeners(session.getFactory()) != null;
+    }
+
+    public static SessionEventListenerImpl get(SharedSessionContractImplementor session) {
+        if (!isSupported(session)) {
+            throw new HibernateException("Unsupported session type: " + session.getClass().getName());
+        }
+        Map<SharedSessionContractImplementor, SessionEventListenerImpl> listeners = IntegratorImpl.INSTANCE.getSessionListeners(session.getFactory());
+        SessionEventListenerImpl listener = listeners.get(session);
+        if (listener == null) {
+            listener = new SessionEventListenerImpl(session);
+            session.getEventListenerManager().addListener(listener);
+            listeners.put(session, listener);
+        }
+        return listener;
+    }
+
+    public static SessionEventListenerImpl find(SharedSessionContractImplementor session) {
+        Map<SharedSessionContractImplementor, SessionEventListenerImpl> listeners = IntegratorImpl.INSTANCE.getSessionListeners(session.getFactory());
+        return listeners != null ? listeners.get(session) : null;
+    }
+
+    private final transient WeakReference<SharedSessionContractImplementor> session;
+    private final transient Map<Object, List<Object>> insertions;
+    private final transient Map<Object, Map<Object, Serializable>> identifiers;
+    private final transient List<Object> deletions;
+    private final transient Map<Object, List<Object>> updates;
+    private final transient Map<Object, TreeLevels> levels;
+
+    private transient StatementCache statementCache;
+
+    private SessionEventListenerImpl(SharedSessionContractImplementor session) {
+        super();
+        LOG.trace("");
+        this.session = new WeakReference<>(session);
+        this.insertions = new IdentityHashMap<>();
+        this.identifiers = new IdentityHashMap<>();
+        this.deletions = new ArrayList<>();
+        this.updates = new LinkedHashMap<>();
+        this.levels = new IdentityHashMap<>();
+    }
+
+    public List<Object> getInsertions(Object owner) {
+        return insertions.computeIfAbsent(owner, k -> new LinkedList<>());
+    }
+
+    public Map<Object, Serializable> getIdentifiers(Object owner) {
+        return identifiers.computeIfAbsent(owner, k -> new IdentityHashMap<>());
+    }
+
+    /**
+     * Tree levels of the owners' pending insertions, kept until the flush
+     * ends.
+     */
+    public Map<Object, TreeLevels> getLevels() {
+        return levels;
+    }
+
+    public List<Object> getDeletions() {
+        return deletions;
+    }
+
+    public List<Object> getUpdates(Object owner) {
+        return updates.computeIfAbsent(owner, k -> new ArrayList<>());
+    }
+
+    public Map<Object, List<Object>> getUpdates() {
+        return updates;
+    }
+
+    public StatementCache getStatementCache() {
+        if (statementCache == null) {
+            int size = ConfigurationHelper.getInt(
+                    Settings.STATEMENT_CACHE_SIZE,
+                    session.get().getFactory().getProperties(),
+                    StatementCache.DEFAULT_SIZE
+            );
+            statementCache = new StatementCache(Math.max(size, 1));
+        }
+        return statementCache;
+    }
+
+    @Override
+    public void jdbcConnectionReleaseStart() {
+        LOG.trace("");
+        closeStatementCache();
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        LOG.trace("");
+        clear();
+    }
+
+    @Override
+    public void end() {
+        LOG.trace("");
+        clear();
+        closeStatementCache();
+        SharedSessionContractImplementor session = this.session.get();
+        if (session != null) {
+            Map<SharedSessionContractImplementor, SessionEventListenerImpl> listeners = IntegratorImpl.INSTANCE.getSessionListeners(session.getFactory());
+            if (listeners != null) {
+                listeners.remove(session);
+            }
+        }
+    }
+
+    private void closeStatementCache() {
+        if (statementCache != null) {
+            statementCache.close();
+        }
+    }
+
+    private void clear() {
+        insertions.clear();
+        identifiers.clear();
+        deletions.clear();
+        updates.clear();
+        levels.clear();
+    }
+
+}
@@ -0,0 +1,564 @@
+package com.exqudens.hibernate.persister;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.hibernate.engine.spi.CascadingActions;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.CollectionType;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exqudens.hibernate.integrator.IntegratorImpl;
+import com.exqudens.hibernate.jdbc.InListPlanner;
+import com.exqudens.hibernate.listener.SessionEventListenerImpl;
+import com.exqudens.hibernate.util.LongIdSet;
+import com.exqudens.hibernate.util.WriteOrder;
+
+/**
+ * Deletes rows by id without building entities. The plan follows the
+ * runtime persisters: a one-to-many collection with delete cascade makes the
+ * element entity a dependent, whose ids are read with id-only selects on
+ * the collection key column; a non-inverse one-to-many without cascade has
+ * its key column set to {@code null}, and collection tables (element and
+ * many-to-many collections) lose the owner's rows, as Hibernate would do on
+ * remove. All ids of one entity are deleted together, in reverse write
+ * order, and self-referencing entities level by level, deepest first.
+ * <p>
+ * Only single column integral keys and foreign keys are supported;
+ * {@link #plan(SingleTableEntityPersisterImpl)} returns {@code null} for
+ * anything else, such as cascading to-one associations or property-ref
+ * collections.
+ */
+public class CascadeDelete {
+
+    private static final Logger LOG;
+
+    static {
+        LOG = LoggerFactory.getLogger(CascadeDelete.class);
+        LOG.trace("");
+    }
+
+    public static CascadeDelete plan(SingleTableEntityPersisterImpl persister) {
+        LOG.trace("");
+        Map<SingleTableEntityPersisterImpl, List<Edge>> edges = new LinkedHashMap<>();
+        List<SingleTableEntityPersisterImpl> pending = new ArrayList<>();
+        pending.add(persister);
+        while (!pending.isEmpty()) {
+            SingleTableEntityPersisterImpl current = pending.remove(pending.size() - 1);
+            if (edges.containsKey(current)) {
+                continue;
+            }
+            List<Edge> currentEdges = getEdges(current);
+            if (currentEdges == null) {
+                LOG.debug("unsupported: {}", current.getEntityName());
+                return null;
+            }
+            edges.put(current, currentEdges);
+            for (Edge edge : currentEdges) {
+                if (edge.kind == EdgeKind.DEPENDENT) {
+                    pending.add(edge.target);
+                }
+            }
+        }
+        Map<SingleTableEntityPersisterImpl, String> selfReferences = new LinkedHashMap<>();
+        for (SingleTableEntityPersisterImpl p : edges.keySet()) {
+            Set<String> columns = getSelfReferenceColumns(p);
+            if (columns == null || columns.size() > 1) {
+                LOG.debug("unsupported self reference: {}", p.getEntityName());
+                return null;
+            }
+            if (!columns.isEmpty()) {
+                selfReferences.put(p, columns.iterator().next());
+            }
+        }
+        return new CascadeDelete(persister, edges, selfReferences);
+    }
+
+    private static List<Edge> getEdges(SingleTableEntityPersisterImpl persister) {
+        if (!isSupportedKey(persister)) {
+            return null;
+        }
+        SessionFactoryImplementor factory = persister.getFactory();
+        List<EntityPersister> persisters = new ArrayList<>();
+        persisters.add(persister);
+        for (Object subclass : persister.getEntityMetamodel().getSubclassEntityNames()) {
+            EntityPersister subclassPersister = factory.getMetamodel().entityPersister(String.class.cast(subclass));
+            if (subclassPersister != persister) {
+                persisters.add(subclassPersister);
+            }
+        }
+        List<Edge> edges = new ArrayList<>();
+        Set<String> roles = new LinkedHashSet<>();
+        for (EntityPersister p : persisters) {
+            Type[] types = p.getPropertyTypes();
+            for (int i = 0; i < types.length; i++) {
+                boolean cascadeDelete = p.getPropertyCascadeStyles()[i].doCascade(CascadingActions.DELETE);
+                if (types[i].isEntityType() && cascadeDelete) {
+                    return null;
+                }
+                if (!types[i].isCollectionType()) {
+                    continue;
+                }
+                CollectionType collectionType = CollectionType.class.cast(types[i]);
+                if (!roles.add(collectionType.getRole())) {
+                    continue;
+                }
+                CollectionPersister collectionPersister = factory.getMetamodel().collectionPersister(collectionType.getRole());
+                if (collectionType.getLHSPropertyName() != null || !(collectionPersister instanceof AbstractCollectionPersister)) {
+                    return null;
+                }
+                AbstractCollectionPersister abstractCollectionPersister = AbstractCollectionPersister.class.cast(collectionPersister);
+                String[] keyColumns = abstractCollectionPersister.getKeyColumnNames();
+                if (keyColumns.length != 1) {
+                    return null;
+                }
+                if (collectionPersister.isOneToMany()) {
+                    EntityPersister element = abstractCollectionPersister.getElementPersister();
+                    if (cascadeDelete) {
+                        if (!(element instanceof SingleTableEntityPersisterImpl) || !isSupportedKey(element)) {
+                            return null;
+                        }
+                        edges.add(new Edge(
+                                EdgeKind.DEPENDENT,
+                                SingleTableEntityPersisterImpl.class.cast(element),
+                                abstractCollectionPersister.getTableName(),
+                                keyColumns[0],
+                                abstractCollectionPersister
+                        ));
+                    } else if (!collectionPersister.isInverse()) {
+                        edges.add(new Edge(EdgeKind.NULLIFY, null, abstractCollectionPersister.getTableName(), keyColumns[0], abstractCollectionPersister));
+                    }
+                } else {
+                    if (cascadeDelete && collectionPersister.getElementType().isEntityType()) {
+                        return null;
+                    }
+                    edges.add(new Edge(EdgeKind.ROWS, null, abstractCollectionPersister.getTableName(), keyColumns[0], abstractCollectionPersister));
+                }
+            }
+        }
+        return edges;
+    }
+
+    private static boolean isSupportedKey(EntityPersister persister) {
+        return persister instanceof SingleTableEntityPersisterImpl
+        && SingleTableEntityPersisterImpl.class.cast(persister).isIntegralKey();
+    }
+
+    /**
+     * Columns of this entity's table referencing the same hierarchy, through
+     * a many-to-one or a one-to-many collection keyed in the same table.
+     */
+    private static Set<String> getSelfReferenceColumns(SingleTableEntityPersisterImpl persister) {
+        SessionFactoryImplementor factory = persister.getFactory();
+        Set<String> columns = new LinkedHashSet<>();
+        Type[] types = persister.getPropertyTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (types[i].isEntityType()) {
+                EntityType entityType = EntityType.class.cast(types[i]);
+                EntityPersister associated = factory.getMetamodel().entityPersister(entityType.getAssociatedEntityName());
+                String[] propertyColumns = persister.getPropertyColumnNames(i);
+                if (associated.getRootEntityName().equals(persister.getRootEntityName()) && propertyColumns.length > 0) {
+                    if (propertyColumns.length != 1) {
+                        return null;
+                    }
+                    columns.add(propertyColumns[0]);
+                }
+            } else if (types[i].isCollectionType()) {
+                CollectionPersister collectionPersister = factory
+                .getMetamodel()
+                .collectionPersister(CollectionType.class.cast(types[i]).getRole());
+                if (
+                        collectionPersister instanceof AbstractCollectionPersister
+                        && collectionPersister.isOneToMany()
+                        && AbstractCollectionPersister
+                        .class
+                        .cast(collectionPersister)
+                        .getElementPersister()
+                        .getRootEntityName()
+                        .equals(persister.getRootEntityName())
+                ) {
+                    String[] keyColumns = AbstractCollectionPersister.class.cast(collectionPersister).getKeyColumnNames();
+                    if (keyColumns.length != 1) {
+                        return null;
+                    }
+                    columns.add(keyColumns[0]);
+                }
+            }
+        }
+        return columns;
+    }
+
+    private final SingleTableEntityPersisterImpl persister;
+    private final Map<SingleTableEntityPersisterImpl, List<Edge>> edges;
+    private final Map<SingleTableEntityPersisterImpl, String> selfReferences;
+
+    private CascadeDelete(
+            SingleTableEntityPersisterImpl persister,
+            Map<SingleTableEntityPersisterImpl, List<Edge>> edges,
+            Map<SingleTableEntityPersisterImpl, String> selfReferences
+    ) {
+        super();
+        LOG.trace("");
+        this.persister = persister;
+        this.edges = edges;
+        this.selfReferences = selfReferences;
+    }
+
+    public void execute(LongIdSet ids, SharedSessionContractImplementor session) {
+        LOG.trace("");
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<SingleTableEntityPersisterImpl, LongIdSet> found = new LinkedHashMap<>();
+        List<Entry<SingleTableEntityPersisterImpl, LongIdSet>> pending = new ArrayList<>();
+        found.put(persister, ids);
+        pending.add(new AbstractMap.SimpleEntry<>(persister, ids));
+        while (!pending.isEmpty()) {
+            Entry<SingleTableEntityPersisterImpl, LongIdSet> entry = pending.remove(0);
+            for (Edge edge : edges.get(entry.getKey())) {
+                if (edge.kind != EdgeKind.DEPENDENT) {
+                    continue;
+                }
+                LongIdSet dependentIds = selectIds(
+                        edge.target.getIdentifierColumnNames()[0],
+                        edge.tableName,
+                        edge.keyColumn,
+                        entry.getValue(),
+                        entry.getKey().getInListPlanner(),
+                        session
+                );
+                LongIdSet known = found.get(edge.target);
+                LongIdSet newIds = known != null ? LongIdSet.minus(dependentIds, known) : dependentIds;
+                if (!newIds.isEmpty()) {
+                    found.put(edge.target, known != null ? LongIdSet.union(known, newIds) : newIds);
+                    pending.add(new AbstractMap.SimpleEntry<>(edge.target, newIds));
+                }
+            }
+        }
+
+        WriteOrder writeOrder = IntegratorImpl.INSTANCE.getWriteOrder(session.getFactory());
+        List<SingleTableEntityPersisterImpl> order = new ArrayList<>(found.keySet());
+        order.sort(Comparator.comparingInt((SingleTableEntityPersisterImpl p) -> writeOrder.getRank(p.getEntityName())).reversed());
+        for (SingleTableEntityPersisterImpl p : order) {
+            LongIdSet entityIds = found.get(p);
+            LOG.debug("{}: {}", p.getEntityName(), entityIds);
+            for (Edge edge : edges.get(p)) {
+                if (edge.kind == EdgeKind.NULLIFY) {
+                    executeKeyed("update " + edge.tableName + " set " + edge.keyColumn + " = null", edge.keyColumn, entityIds, p, session);
+                } else if (edge.kind == EdgeKind.ROWS) {
+                    executeKeyed("delete from " + edge.tableName, edge.keyColumn, entityIds, p, session);
+                }
+            }
+            String selfReference = selfReferences.get(p);
+            if (selfReference != null) {
+                List<LongIdSet> levels = toLevels(p, selfReference, entityIds, session);
+                for (int i = levels.size() - 1; i >= 0; i--) {
+                    p.deleteByIds(levels.get(i), session);
+                }
+            } else {
+                p.deleteByIds(entityIds, session);
+            }
+        }
+        evict(order, session);
+    }
+
+    /**
+     * Splits the ids into tree levels by their self reference column, root
+     * level first. Ids on a reference cycle get the level at which the cycle
+     * was entered.
+     */
+    private List<LongIdSet> toLevels(
+            SingleTableEntityPersisterImpl p,
+            String selfReference,
+            LongIdSet ids,
+            SharedSessionContractImplementor session
+    ) {
+        LOG.trace("");
+        long[] keys = ids.toArray();
+        long[] parentKeys = new long[keys.length];
+        boolean[] hasParent = new boolean[keys.length];
+        String idColumn = p.getIdentifierColumnNames()[0];
+        forEachChunk(ids, p.getInListPlanner(), (chunk, count) -> {
+            String sql = "select " + idColumn + ", " + selfReference + " from " + p.getTableName() + " where " + idColumn;
+            query(sql, chunk, count, p.getInListPlanner(), session, rs -> {
+                int index = Arrays.binarySearch(keys, rs.getLong(1));
+                long parentKey = rs.getLong(2);
+                if (index >= 0 && !rs.wasNull()) {
+                    parentKeys[index] = parentKey;
+                    hasParent[index] = true;
+                }
+            });
+        });
+        int[] parents = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            int parent = hasParent[i] ? Arrays.binarySearch(keys, parentKeys[i]) : -1;
+            parents[i] = parent >= 0 && parent != i ? parent : -1;
+        }
+        int[] depths = new int[keys.length];
+        Arrays.fill(depths, -1);
+        int[] path = new int[keys.length];
+        int maxDepth = 0;
+        for (int i = 0; i < keys.length; i++) {
+            int length = 0;
+            int current = i;
+            // walk up until a known depth, a root or a node already on the path
+            while (current != -1 && depths[current] < 0) {
+                depths[current] = -2;
+                path[length++] = current;
+                current = parents[current];
+                if (current != -1 && depths[current] == -2) {
+                    current = -1;
+                }
+            }
+            int depth = current == -1 ? -1 : depths[current];
+            for (int j = length - 1; j >= 0; j--) {
+                depths[path[j]] = ++depth;
+            }
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        List<LongIdSet.Builder> builders = new ArrayList<>();
+        for (int d = 0; d <= maxDepth; d++) {
+            builders.add(new LongIdSet.Builder());
+        }
+        for (int i = 0; i < keys.length; i++) {
+            builders.get(depths[i]).add(keys[i]);
+        }
+        List<LongIdSet> levels = new ArrayList<>(builders.size());
+        for (LongIdSet.Builder builder : builders) {
+            levels.add(builder.build());
+        }
+        return levels;
+    }
+
+    private LongIdSet selectIds(
+            String idColumn,
+            String tableName,
+            String keyColumn,
+            LongIdSet keys,
+            InListPlanner planner,
+            SharedSessionContractImplementor session
+    ) {
+        LOG.trace("");
+        long[][] values = {new long[16]};
+        int[] count = new int[1];
+        forEachChunk(keys, planner, (chunk, chunkCount) -> {
+            String sql = "select " + idColumn + " from " + tableName + " where " + keyColumn;
+            query(sql, chunk, chunkCount, planner, session, rs -> {
+                if (count[0] == values[0].length) {
+                    values[0] = Arrays.copyOf(values[0], count[0] * 2);
+                }
+                values[0][count[0]++] = rs.getLong(1);
+            });
+        });
+        return LongIdSet.of(Arrays.copyOf(values[0], count[0]));
+    }
+
+    private void executeKeyed(
+            String head,
+            String keyColumn,
+            LongIdSet keys,
+            SingleTableEntityPersisterImpl owner,
+            SharedSessionContractImplementor session
+    ) {
+        LOG.trace("");
+        InListPlanner planner = owner.getInListPlanner();
+        forEachChunk(keys, planner, (chunk, count) -> {
+            int rows = planner.getPaddedSize(count);
+            String sql = head + " where " + keyColumn + toInList(rows);
+            PreparedStatement ps = null;
+            try {
+                ps = prepareStatement(sql, session);
+                bind(ps, chunk, count, rows);
+                ps.executeUpdate();
+            } catch (RuntimeException e) {
+                LOG.error(sql, e);
+                SessionEventListenerImpl.get(session).getStatementCache().evict(ps);
+                throw e;
+            } catch (Exception e) {
+                LOG.error(sql, e);
+                SessionEventListenerImpl.get(session).getStatementCache().evict(ps);
+                throw new RuntimeException(e);
+            } finally {
+                if (ps != null) {
+                    session.getJdbcCoordinator().afterStatementExecution();
+                }
+            }
+        });
+    }
+
+    private void query(
+            String sqlHead,
+            long[] chunk,
+            int count,
+            InListPlanner planner,
+            SharedSessionContractImplementor session,
+            RowConsumer consumer
+    ) {
+        int rows = planner.getPaddedSize(count);
+        String sql = sqlHead + toInList(rows);
+        PreparedStatement ps = null;
+        try {
+            ps = prepareStatement(sql, session);
+            bind(ps, chunk, count, rows);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(rs);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOG.error(sql, e);
+            SessionEventListenerImpl.get(session).getStatementCache().evict(ps);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(sql, e);
+            SessionEventListenerImpl.get(session).getStatementCache().evict(ps);
+            throw new RuntimeException(e);
+        } finally {
+            if (ps != null) {
+                session.getJdbcCoordinator().afterStatementExecution();
+            }
+        }
+    }
+
+    private PreparedStatement prepareStatement(String sql, SharedSessionContractImplementor session) throws SQLException {
+        PreparedStatement ps = SessionEventListenerImpl
+        .get(session)
+        .getStatementCache()
+        .prepareStatement(
+                session.getJdbcCoordinator().getLogicalConnection().getPhysicalConnection(),
+                sql,
+                Statement.NO_GENERATED_KEYS
+        );
+        session.getJdbcServices().getSqlStatementLogger().logStatement(sql);
+        return ps;
+    }
+
+    private void bind(PreparedStatement ps, long[] chunk, int count, int rows) throws SQLException {
+        for (int i = 0; i < rows; i++) {
+            // padding repeats the last key
+            ps.setLong(i + 1, chunk[Math.min(i, count - 1)]);
+        }
+    }
+
+    private void forEachChunk(LongIdSet ids, InListPlanner planner, ChunkConsumer consumer) {
+        long[] buffer = new long[0];
+        for (int from = 0; from < ids.size(); ) {
+            int chunkSize = planner.getPlannedChunkSize();
+            if (buffer.length != chunkSize) {
+                buffer = new long[chunkSize];
+            }
+            int count = ids.toArray(from, buffer);
+            consumer.accept(buffer, count);
+            from += count;
+        }
+    }
+
+    private String toInList(int rows) {
+        return " in (" + String.join(", ", Collections.nCopies(rows, "?")) + ")";
+    }
+
+    private void evict(List<SingleTableEntityPersisterImpl> persisters, SharedSessionContractImplementor session) {
+        LOG.trace("");
+        for (SingleTableEntityPersisterImpl p : persisters) {
+            if (p.hasCache()) {
+                session.getFactory().getCache().evictEntityRegion(p.getEntityName());
+            }
+            for (Edge edge : edges.get(p)) {
+                if (edge.collectionPersister.hasCache()) {
+                    session.getFactory().getCache().evictCollectionRegion(edge.collectionPersister.getRole());
+                }
+                if (edge.kind == EdgeKind.NULLIFY && edge.collectionPersister.getElementPersister().hasCache()) {
+                    session.getFactory().getCache().evictEntityRegion(edge.collectionPersister.getElementPersister().getEntityName());
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("CascadeDelete [entityName=");
+        builder.append(persister.getEntityName());
+        builder.append(", edges=");
+        builder.append(edges.values());
+        builder.append(", selfReferences=");
+        builder.append(selfReferences.values());
+        builder.append("]");
+        return builder.toString();
+    }
+
+    private enum EdgeKind {
+        DEPENDENT, NULLIFY, ROWS
+    }
+
+    private interface ChunkConsumer {
+
+        void accept(long[] chunk, int count);
+
+    }
+
+    private interface RowConsumer {
+
+        void accept(ResultSet rs) throws SQLException;
+
+    }
+
+    private static class Edge {
+
+        private final EdgeKind kind;
+        private final SingleTableEntityPersisterImpl target;
+        private final String tableName;
+        private final String keyColumn;
+        private final AbstractCollectionPersister collectionPersister;
+
+        private Edge(
+                EdgeKind kind,
+                SingleTableEntityPersisterImpl target,
+                String tableName,
+                String keyColumn,
+                AbstractCollectionPersister collectionPersister
+        ) {
+            super();
+            this.kind = kind;
+            this.target = target;
+            this.tableName = tableName;
+            this.keyColumn = keyColumn;
+            this.collectionPersister = collectionPersister;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append("Edge [kind=");
+            builder.append(kind);
+            builder.append(", tableName=");
+            builder.append(tableName);
+            builder.append(", keyColumn=");
+            builder.append(keyColumn);
+            builder.append("]");
+            return builder.toString();
+        }
+
+    }
+
+}
@@ -11,7 +11,10 @@ public interface PostInsertIdentityPersister extends org.hibernate.id.PostInsert
     int dehydrateIdentityInsert(
             Object entity,
             PreparedStatement ps,
+            int index,
             SharedSessionContractImplementor session
     ) throws SQLException, HibernateException;
 
+    long getIdentityInsertRowLength();
+
 }
@@ -0,0 +1,202 @@
+package com.exqudens.hibernate.persister;
+
+import java.io.Serializable;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.hibernate.PropertyAccessException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.property.access.spi.Getter;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.tuple.entity.AbstractEntityTuplizer;
+import org.hibernate.tuple.entity.EntityTuplizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per entity class property readers, generated once per persister. Public
+ * getter methods are bound through {@link LambdaMetafactory} when the entity
+ * class is visible from this class loader, otherwise and for fields through a
+ * {@link MethodHandle}; anything else (virtual, embedded or
+ * map properties) goes through the Hibernate {@link Getter}. Callers read
+ * single properties or a subset of them instead of the full state array.
+ */
+public class PropertyAccessors {
+
+    private static final Logger LOG;
+
+    static {
+        LOG = LoggerFactory.getLogger(PropertyAccessors.class);
+        LOG.trace("");
+    }
+
+    public static PropertyAccessors of(EntityPersister persister) {
+        if (persister instanceof SingleTableEntityPersisterImpl) {
+            return SingleTableEntityPersisterImpl.class.cast(persister).getPropertyAccessors();
+        }
+        return new PropertyAccessors(persister, false);
+    }
+
+    private final EntityPersister persister;
+    private final Function<Object, Object> identifier;
+    private final List<Function<Object, Object>> properties;
+    private final boolean lazyLoading;
+
+    public PropertyAccessors(EntityPersister persister) {
+        this(persister, true);
+    }
+
+    private PropertyAccessors(EntityPersister persister, boolean generate) {
+        super();
+        LOG.trace("");
+        this.persister = persister;
+        EntityTuplizer tuplizer = persister.getEntityTuplizer();
+        AbstractEntityTuplizer abstractTuplizer = tuplizer instanceof AbstractEntityTuplizer
+        ? AbstractEntityTuplizer.class.cast(tuplizer)
+        : null;
+        Getter identifierGetter = persister.getEntityMetamodel().getIdentifierProperty().isEmbedded()
+        ? null
+        : tuplizer.getIdentifierGetter();
+        this.identifier = identifierGetter != null ? toFunction(identifierGetter, generate) : null;
+        int propertyCount = persister.getPropertyTypes().length;
+        this.properties = new ArrayList<>(propertyCount);
+        for (int i = 0; i < propertyCount; i++) {
+            if (abstractTuplizer != null) {
+                properties.add(toFunction(abstractTuplizer.getGetter(i), generate));
+            } else {
+                int index = i;
+                properties.add(entity -> persister.getPropertyValue(entity, index));
+            }
+        }
+        this.lazyLoading = persister.getEntityMetamodel().getBytecodeEnhancementMetadata().isEnhancedForLazyLoading();
+    }
+
+    public Serializable getIdentifier(Object entity, SharedSessionContractImplementor session) {
+        if (identifier == null || entity instanceof HibernateProxy) {
+            return persister.getIdentifier(entity, session);
+        }
+        return Serializable.class.cast(identifier.apply(entity));
+    }
+
+    public Object getPropertyValue(Object entity, int index) {
+        return properties.get(index).apply(entity);
+    }
+
+    /**
+     * State array with only the included properties read, the others left
+     * {@code null}. Entities enhanced for lazy loading get the full state
+     * array, which marks unfetched properties.
+     */
+    public Object[] getPropertyValues(Object entity, boolean[] includeProperty) {
+        if (lazyLoading) {
+            return persister.getPropertyValues(entity);
+        }
+        Object[] values = new Object[properties.size()];
+        for (int i = 0; i < values.length; i++) {
+            if (includeProperty[i]) {
+                values[i] = properties.get(i).apply(entity);
+            }
+        }
+        return values;
+    }
+
+    private Function<Object, Object> toFunction(Getter getter, boolean generate) {
+        if (generate) {
+            try {
+                Method method = getter.getMethod();
+                if (
+                        method != null
+                        && Modifier.isPublic(method.getModifiers())
+                        && Modifier.isPublic(method.getDeclaringClass().getModifiers())
+                ) {
+                    return toFunction(method);
+                }
+                Member member = getter.getMember();
+                if (member instanceof Field && !Modifier.isStatic(member.getModifiers())) {
+                    return toFunction(Field.class.cast(member));
+                }
+            } catch (Throwable e) {
+                LOG.debug("{}: {}", persister.getEntityName(), e.getMessage());
+            }
+        }
+        return getter::get;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Function<Object, Object> toFunction(Method method) throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle target = lookup.unreflect(method);
+        if (!isVisible(method.getDeclaringClass()) || !isVisible(method.getReturnType())) {
+            // a lambda class defined here could not link the entity class
+            return toFunction(
+                    target.asType(MethodType.methodType(Object.class, Object.class)),
+                    method.getDeclaringClass(),
+                    method.getName()
+            );
+        }
+        CallSite site = LambdaMetafactory.metafactory(
+                lookup,
+                "apply",
+                MethodType.methodType(Function.class),
+                MethodType.methodType(Object.class, Object.class),
+                target,
+                target.type().wrap()
+        );
+        return (Function<Object, Object>) site.getTarget().invokeExact();
+    }
+
+    private Function<Object, Object> toFunction(Field field) throws Throwable {
+        field.setAccessible(true);
+        MethodHandle handle = MethodHandles
+        .lookup()
+        .unreflectGetter(field)
+        .asType(MethodType.methodType(Object.class, Object.class));
+        return toFunction(handle, field.getDeclaringClass(), field.getName());
+    }
+
+    private Function<Object, Object> toFunction(MethodHandle handle, Class<?> declaringClass, String name) {
+        return entity -> {
+            try {
+                return handle.invokeExact(entity);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new PropertyAccessException(e, "could not get a property value", false, declaringClass, name);
+            }
+        };
+    }
+
+    private boolean isVisible(Class<?> type) {
+        if (type.isPrimitive()) {
+            return true;
+        }
+        try {
+            return Class.forName(type.getName(), false, PropertyAccessors.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("PropertyAccessors [entityName=");
+        builder.append(persister.getEntityName());
+        builder.append(", propertyCount=");
+        builder.append(properties.size());
+        builder.append("]");
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.exqudens.hibernate.persister;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded cache of values keyed by a property inclusion mask. Masks are
+ * stored as packed bits and compared against the {@code boolean[]} passed in,
+ * so a hit does not allocate. Each mask maps to two candidate slots; on a
+ * miss the second slot is replaced, which keeps the size fixed without any
+ * eviction bookkeeping.
+ */
+public class PropertyMaskCache<V> {
+
+    public static final int DEFAULT_SIZE;
+
+    private static final Logger LOG;
+
+    static {
+        LOG = LoggerFactory.getLogger(PropertyMaskCache.class);
+        LOG.trace("");
+        DEFAULT_SIZE = 64;
+    }
+
+    private final AtomicReferenceArray<Slot<V>> slots;
+    private final int mask;
+
+    public PropertyMaskCache(int size) {
+        super();
+        LOG.trace("");
+        int capacity = Integer.highestOneBit(Math.max(size, 2) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    public V get(boolean[] includeProperty) {
+        int hash = hash(includeProperty);
+        Slot<V> slot = slots.get(hash & mask);
+        if (slot != null && slot.matches(hash, includeProperty)) {
+            return slot.value;
+        }
+        slot = slots.get((hash ^ 1) & mask);
+        if (slot != null && slot.matches(hash, includeProperty)) {
+            return slot.value;
+        }
+        return null;
+    }
+
+    public V put(boolean[] includeProperty, V value) {
+        LOG.trace("");
+        int hash = hash(includeProperty);
+        Slot<V> slot = new Slot<>(hash, includeProperty, value);
+        int index = hash & mask;
+        if (slots.get(index) == null) {
+            slots.set(index, slot);
+        } else {
+            slots.set((hash ^ 1) & mask, slot);
+        }
+        return value;
+    }
+
+    private static int hash(boolean[] includeProperty) {
+        int hash = includeProperty.length;
+        long word = 0;
+        for (int i = 0; i < includeProperty.length; i++) {
+            if (includeProperty[i]) {
+                word |= 1L << (i & 63);
+            }
+            if ((i & 63) == 63) {
+                hash = 31 * hash + Long.hashCode(word);
+                word = 0;
+            }
+        }
+        hash = 31 * hash + Long.hashCode(word);
+        return hash ^ (hash >>> 16);
+    }
+
+    private static class Slot<V> {
+
+        private final int hash;
+        private final int length;
+        private final long[] bits;
+        private final V value;
+
+        private Slot(int hash, boolean[] includeProperty, V value) {
+            super();
+            this.hash = hash;
+            this.length = includeProperty.length;
+            this.bits = new long[(includeProperty.length + 63) >>> 6];
+            for (int i = 0; i < includeProperty.length; i++) {
+                if (includeProperty[i]) {
+                    bits[i >>> 6] |= 1L << (i & 63);
+                }
+            }
+            this.value = value;
+        }
+
+        private boolean matches(int hash, boolean[] includeProperty) {
+            if (this.hash != hash || length != includeProperty.length) {
+                return false;
+            }
+            for (int i = 0; i < includeProperty.length; i++) {
+                if (includeProperty[i] != ((bits[i >>> 6] & (1L << (i & 63))) != 0)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+}
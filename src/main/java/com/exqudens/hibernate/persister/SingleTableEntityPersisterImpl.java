@@ -1,16 +1,26 @@
 package com.exqudens.hibernate.persister;
 
 import java.io.Serializable;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.AbstractMap.SimpleEntry;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.RandomAccess;
 import java.util.Spliterator;
-import java.util.function.Function;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -19,40 +29,73 @@ import java.util.stream.StreamSupport;
 import org.hibernate.HibernateException;
 import org.hibernate.LockMode;
 import org.hibernate.LockOptions;
+import org.hibernate.StaleObjectStateException;
 import org.hibernate.cache.spi.access.EntityRegionAccessStrategy;
 import org.hibernate.cache.spi.access.NaturalIdRegionAccessStrategy;
 import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.internal.Versioning;
 import org.hibernate.engine.jdbc.connections.spi.MultiTenantConnectionProvider;
 import org.hibernate.engine.spi.ExecuteUpdateResultCheckStyle;
+import org.hibernate.engine.spi.Mapping;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.event.service.spi.EventListenerRegistry;
 import org.hibernate.event.spi.DeleteEventListener;
 import org.hibernate.event.spi.EventType;
+import org.hibernate.internal.util.collections.ArrayHelper;
+import org.hibernate.internal.util.config.ConfigurationHelper;
 import org.hibernate.loader.entity.CascadeEntityLoader;
 import org.hibernate.loader.entity.UniqueEntityLoader;
+import org.hibernate.mapping.Column;
 import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.Property;
 import org.hibernate.persister.entity.EntityPersister;
 import org.hibernate.persister.entity.MultiLoadOptions;
 import org.hibernate.persister.entity.SingleTableEntityPersister;
 import org.hibernate.persister.spi.PersisterCreationContext;
 import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.hibernate.type.Type;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.exqudens.hibernate.cfg.Settings;
+import com.exqudens.hibernate.integrator.IntegratorImpl;
+import com.exqudens.hibernate.jdbc.InListPlanner;
+import com.exqudens.hibernate.jdbc.MultiRowInsert;
 import com.exqudens.hibernate.listener.DeleteEventListenerImpl;
+import com.exqudens.hibernate.listener.SessionEventListenerImpl;
 import com.exqudens.hibernate.multitenancy.MultiTenantConnectionProviderImpl;
+import com.exqudens.hibernate.util.LongIdSet;
+import com.exqudens.hibernate.util.RangeUtils;
 import com.exqudens.hibernate.util.SortUtils;
 
 public class SingleTableEntityPersisterImpl extends SingleTableEntityPersister implements PostInsertIdentityPersister {
 
     private static final Logger LOG;
+    private static final int ER_LOCK_WAIT_TIMEOUT;
+    private static final int ER_LOCK_DEADLOCK;
+    private static final long RETRY_BACKOFF_MILLIS;
 
     static {
         LOG = LoggerFactory.getLogger(SingleTableEntityPersisterImpl.class);
+        ER_LOCK_WAIT_TIMEOUT = 1205;
+        ER_LOCK_DEADLOCK = 1213;
+        RETRY_BACKOFF_MILLIS = 50L;
     }
 
     private final boolean isMySQLDialect;
     private final DeleteEventListenerImpl deleteEventListener;
+    private final long identityInsertRowLength;
+    private final boolean multiRowUpsert;
+    private final PropertyMaskCache<MultiRowInsert> mySQLUpserts;
+    private final String keyedUpdateString;
+    private final long keyLength;
+    private final boolean integralKey;
+    private final int bulkDeleteRetries;
+    private final AtomicLong bulkDeleteRetryCount;
+    private final AtomicLong bulkDeleteSplitCount;
+    private final AtomicLong bulkDeleteDeadlockCount;
+    private final PropertyAccessors propertyAccessors;
+    private volatile InListPlanner inListPlanner;
 
     public SingleTableEntityPersisterImpl(
             PersistentClass persistentClass,
@@ -78,6 +121,20 @@ public class SingleTableEntityPersisterImpl extends SingleTableEntityPersister i
         .map(l -> DeleteEventListenerImpl.class.cast(l))
         .findFirst()
         .orElse(null);
+        identityInsertRowLength = getIdentityInsertRowLength(persistentClass, creationContext.getMetadata());
+        multiRowUpsert = isMySQLDialect && ConfigurationHelper.getBoolean(Settings.MULTI_ROW_UPSERT, getFactory().getProperties(), false);
+        mySQLUpserts = new PropertyMaskCache<>(PropertyMaskCache.DEFAULT_SIZE);
+        keyedUpdateString = generateKeyedUpdateString();
+        keyLength = getKeyLength(persistentClass, creationContext.getMetadata());
+        Class<?> keyClass = getIdentifierType().getReturnedClass();
+        integralKey = getIdentifierColumnSpan() == 1
+        && (Long.class.equals(keyClass) || Integer.class.equals(keyClass) || Short.class.equals(keyClass)
+        || long.class.equals(keyClass) || int.class.equals(keyClass) || short.class.equals(keyClass));
+        bulkDeleteRetries = ConfigurationHelper.getInt(Settings.BULK_DELETE_RETRIES, getFactory().getProperties(), 0);
+        bulkDeleteRetryCount = new AtomicLong();
+        bulkDeleteSplitCount = new AtomicLong();
+        bulkDeleteDeadlockCount = new AtomicLong();
+        propertyAccessors = new PropertyAccessors(this);
     }
 
     @Override
@@ -139,7 +196,16 @@ public class SingleTableEntityPersisterImpl extends SingleTableEntityPersister i
     @Override
     public void update(Serializable id, Object[] fields, int[] dirtyFields, boolean hasDirtyCollection, Object[] oldFields, Object oldVersion, Object object, Object rowId, SharedSessionContractImplementor session) throws HibernateException {
         LOG.trace("");
-        super.update(id, fields, dirtyFields, hasDirtyCollection, oldFields, oldVersion, object, rowId, session);
+        if (multiRowUpsert && SessionEventListenerImpl.isSupported(session) && isMultiRowUpsertable(rowId, object)) {
+            boolean[] includeProperty = getEntityMetamodel().isDynamicUpdate() && dirtyFields != null
+            ? getPropertiesToUpdate(dirtyFields, hasDirtyCollection)
+            : getPropertyUpdateability();
+            if (hasUpdateableColumn(includeProperty)) {
+                SessionEventListenerImpl.get(session).getUpdates(this).add(new Upsert(id, fields, includeProperty));
+            }
+        } else {
+            super.update(id, fields, dirtyFields, hasDirtyCollection, oldFields, oldVersion, object, rowId, session);
+        }
     }
 
     @Override
@@ -152,11 +218,112 @@ public class SingleTableEntityPersisterImpl extends SingleTableEntityPersister i
         }
     }
 
+    /**
+     * Writes detached entities with JDBC batched
+     * {@code update ... where id = ? [and version = ?]} statements, without
+     * loading them first. Every statement must report one matched row,
+     * otherwise the row is missing or was changed concurrently and a
+     * {@link StaleObjectStateException} is thrown. Only the entity's own
+     * columns are written: nothing is cascaded and collections are not
+     * updated. The entities are left untouched; the incremented versions
+     * are returned in input order ({@code null} when not versioned) for
+     * the caller to apply with {@link #setVersions(List, Object[])} once
+     * the transaction committed.
+     */
+    public Object[] updateDetached(List<?> entities, SharedSessionContractImplementor session) throws HibernateException {
+        LOG.trace("");
+        if (keyedUpdateString == null) {
+            throw new HibernateException("Keyed update not supported for: " + getEntityName());
+        }
+        boolean[][] propertyColumnUpdateable = getPropertyColumnUpdateable();
+        boolean[] propertyUpdateability = getPropertyUpdateability();
+        Type[] propertyTypes = getPropertyTypes();
+        int batchSize = Math.max(getJdbcBatchSize(session), 1);
+        Object[] nextVersions = isVersioned() ? new Object[entities.size()] : null;
+        for (int from = 0; from < entities.size(); from += batchSize) {
+            List<?> batch = entities.subList(from, Math.min(from + batchSize, entities.size()));
+            Serializable[] ids = new Serializable[batch.size()];
+            Object[] versions = new Object[batch.size()];
+            PreparedStatement ps = null;
+            try {
+                ps = SessionEventListenerImpl
+                .get(session)
+                .getStatementCache()
+                .prepareStatement(
+                        session.getJdbcCoordinator().getLogicalConnection().getPhysicalConnection(),
+                        keyedUpdateString,
+                        Statement.NO_GENERATED_KEYS
+                );
+                for (int j = 0; j < batch.size(); j++) {
+                    Object entity = batch.get(j);
+                    Object[] fields = getPropertyValues(entity);
+                    ids[j] = getIdentifier(entity, session);
+                    if (isVersioned()) {
+                        versions[j] = fields[getVersionProperty()];
+                        nextVersions[from + j] = Versioning.increment(versions[j], getVersionType(), session);
+                        fields[getVersionProperty()] = nextVersions[from + j];
+                    }
+                    int index = 1;
+                    for (int i = 0; i < fields.length; i++) {
+                        if (propertyUpdateability[i]) {
+                            propertyTypes[i].nullSafeSet(ps, fields[i], index, propertyColumnUpdateable[i], session);
+                            index += ArrayHelper.countTrue(propertyColumnUpdateable[i]);
+                        }
+                    }
+                    getIdentifierType().nullSafeSet(ps, ids[j], index, session);
+                    index += getIdentifierColumnSpan();
+                    if (isVersioned()) {
+                        getVersionType().nullSafeSet(ps, versions[j], index, session);
+                    }
+                    ps.addBatch();
+                }
+                session.getJdbcServices().getSqlStatementLogger().logStatement(keyedUpdateString);
+                int[] rowCounts = ps.executeBatch();
+                for (int j = 0; j < rowCounts.length; j++) {
+                    if (rowCounts[j] == 0) {
+                        throw new StaleObjectStateException(getEntityName(), ids[j]);
+                    }
+                }
+                if (hasCache()) {
+                    for (Serializable id : ids) {
+                        session.getFactory().getCache().evict(getMappedClass(), id);
+                    }
+                }
+            } catch (RuntimeException e) {
+                LOG.error(e.getMessage(), e);
+                SessionEventListenerImpl.get(session).getStatementCache().evict(ps);
+                throw e;
+            } catch (Exception e) {
+                LOG.error(e.getMessage(), e);
+                SessionEventListenerImpl.get(session).getStatementCache().evict(ps);
+                throw new RuntimeException(e);
+            } finally {
+                if (ps != null) {
+                    session.getJdbcCoordinator().afterStatementExecution();
+                }
+            }
+        }
+        return nextVersions;
+    }
+
+    /**
+     * Applies the versions returned by {@link #updateDetached(List, SharedSessionContractImplementor)}.
+     */
+    public void setVersions(List<?> entities, Object[] versions) {
+        LOG.trace("");
+        if (versions == null) {
+            return;
+        }
+        for (int i = 0; i < entities.size(); i++) {
+            setPropertyValue(entities.get(i), getVersionProperty(), versions[i]);
+        }
+    }
+
     @Override
     protected String generateUpdateString(boolean[] includeProperty, int j, Object[] oldFields, boolean useRowId) {
         LOG.trace("");
         if (isMySQLDialect) {
-            return generateMySQLUpdateString(includeProperty, j, oldFields, useRowId);
+            return getMySQLUpsert(includeProperty).getInsertSQL();
         } else {
             return super.generateUpdateString(includeProperty, j, oldFields, useRowId);
         }
@@ -166,21 +333,140 @@ public class SingleTableEntityPersisterImpl extends SingleTableEntityPersister i
     public int dehydrateIdentityInsert(
             Object entity,
             PreparedStatement ps,
+            int index,
             SharedSessionContractImplementor session
     ) throws SQLException, HibernateException {
         LOG.trace("");
         return dehydrate(
                 null,
-                getPropertyValues(entity),
+                propertyAccessors.getPropertyValues(entity, getPropertyInsertability()),
+                null,
                 getPropertyInsertability(),
                 getPropertyColumnInsertable(),
                 0,
                 ps,
                 session,
+                index,
                 false
         );
     }
 
+    @Override
+    public long getIdentityInsertRowLength() {
+        return identityInsertRowLength;
+    }
+
+    public PropertyAccessors getPropertyAccessors() {
+        return propertyAccessors;
+    }
+
+    /**
+     * Created on first use, so the server variables are only read once a
+     * statement needs them.
+     */
+    public InListPlanner getInListPlanner() {
+        InListPlanner planner = inListPlanner;
+        if (planner == null) {
+            synchronized (this) {
+                planner = inListPlanner;
+                if (planner == null) {
+                    planner = new InListPlanner(
+                            getFactory().getSessionFactoryOptions().getJdbcBatchSize(),
+                            getIdentifierColumnSpan(),
+                            keyLength,
+                            IntegratorImpl.INSTANCE.getServerVariables(getFactory()),
+                            ConfigurationHelper.getInt(
+                                    Settings.IN_LIST_TARGET_LATENCY,
+                                    getFactory().getProperties(),
+                                    InListPlanner.DEFAULT_TARGET_LATENCY_MILLIS
+                            ),
+                            ConfigurationHelper.getBoolean(Settings.IN_LIST_PADDING, getFactory().getProperties(), true)
+                    );
+                    inListPlanner = planner;
+                }
+            }
+        }
+        return planner;
+    }
+
+    /**
+     * Single column {@code long}, {@code int} or {@code short} key, eligible
+     * for {@code between} range predicates.
+     */
+    public boolean isIntegralKey() {
+        return integralKey;
+    }
+
+    public long getBulkDeleteRetryCount() {
+        return bulkDeleteRetryCount.get();
+    }
+
+    public long getBulkDeleteSplitCount() {
+        return bulkDeleteSplitCount.get();
+    }
+
+    public long getBulkDeleteDeadlockCount() {
+        return bulkDeleteDeadlockCount.get();
+    }
+
+    private long getKeyLength(PersistentClass persistentClass, Mapping mapping) {
+        LOG.trace("");
+        long length = 0;
+        Iterator<?> selectables = persistentClass.getIdentifier().getColumnIterator();
+        while (selectables.hasNext()) {
+            Object selectable = selectables.next();
+            if (selectable instanceof Column) {
+                length = Math.min(length + getColumnLength(Column.class.cast(selectable), mapping), Integer.MAX_VALUE);
+            }
+        }
+        return length;
+    }
+
+    private long getIdentityInsertRowLength(PersistentClass persistentClass, Mapping mapping) {
+        LOG.trace("");
+        long length = 0;
+        Iterator<?> properties = persistentClass.getPropertyClosureIterator();
+        while (properties.hasNext()) {
+            Property property = Property.class.cast(properties.next());
+            if (!property.isInsertable()) {
+                continue;
+            }
+            boolean[] columnInsertability = property.getValue().getColumnInsertability();
+            Iterator<?> selectables = property.getColumnIterator();
+            for (int i = 0; selectables.hasNext(); i++) {
+                Object selectable = selectables.next();
+                if (selectable instanceof Column && columnInsertability[i]) {
+                    length = Math.min(length + getColumnLength(Column.class.cast(selectable), mapping), Integer.MAX_VALUE);
+                }
+            }
+        }
+        return length;
+    }
+
+    private long getColumnLength(Column column, Mapping mapping) {
+        switch (column.getSqlTypeCode(mapping)) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                // utf8mb4 worst case plus quotes
+                return 4L * column.getLength() + 2;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+                // hex literal
+                return 2L * column.getLength() + 3;
+            case Types.BLOB:
+            case Types.CLOB:
+            case Types.NCLOB:
+                return Integer.MAX_VALUE;
+            default:
+                return 32;
+        }
+    }
+
     private void preLoad(SharedSessionContractImplementor session) {
         LOG.trace("");
         PhysicalConnectionHandlingMode mode1 = PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_STATEMENT;
@@ -192,7 +478,15 @@ public class SingleTableEntityPersisterImpl extends SingleTableEntityPersister i
         }
     }
 
-    private String generateMySQLUpdateString(boolean[] includeProperty, int j, Object[] oldFields, boolean useRowId) {
+    private MultiRowInsert getMySQLUpsert(boolean[] includeProperty) {
+        MultiRowInsert upsert = mySQLUpserts.get(includeProperty);
+        if (upsert == null) {
+            upsert = mySQLUpserts.put(includeProperty, generateMySQLUpsert(includeProperty));
+        }
+        return upsert;
+    }
+
+    private MultiRowInsert generateMySQLUpsert(boolean[] includeProperty) {
         LOG.trace("");
         List<String> columnNames = new LinkedList<>();
         List<String> idColumnNames = new LinkedList<>();
@@ -213,15 +507,158 @@ public class SingleTableEntityPersisterImpl extends SingleTableEntityPersister i
             }
             idColumnNames.addAll(Arrays.asList(getKeyColumns(tableIndex)));
         }
-        String newUpdateString = Arrays.asList(
+        String head = Arrays.asList(
                 "insert into ",
                 getTableName(),
                 Stream.concat(columnNames.stream(), idColumnNames.stream()).collect(Collectors.joining(", ", " (", ")")),
-                IntStream.range(0, columnNames.size() + idColumnNames.size()).mapToObj(i -> "?").collect(Collectors.joining(", ", " values (", ")")),
+                " values "
+        ).stream().collect(Collectors.joining());
+        String row = IntStream.range(0, columnNames.size() + idColumnNames.size()).mapToObj(i -> "?").collect(Collectors.joining(", ", "(", ")"));
+        String tail = Arrays.asList(
                 " on duplicate key update ",
                 columnNames.stream().map(c -> c + " = values(" + c + ")").collect(Collectors.joining(", "))
         ).stream().collect(Collectors.joining());
-        return newUpdateString;
+        return new MultiRowInsert(head, row, tail);
+    }
+
+    private String generateKeyedUpdateString() {
+        LOG.trace("");
+        if (getTableSpan() != 1) {
+            return null;
+        }
+        List<String> columnNames = new LinkedList<>();
+        boolean[] propertyUpdateability = getPropertyUpdateability();
+        boolean[][] propertyColumnUpdateable = getPropertyColumnUpdateable();
+        for (int propertyIndex = 0; propertyIndex < propertyUpdateability.length; propertyIndex++) {
+            if (propertyUpdateability[propertyIndex]) {
+                String[] propertyColumnNames = getPropertyColumnNames(propertyIndex);
+                for (int columnIndex = 0; columnIndex < propertyColumnNames.length; columnIndex++) {
+                    if (propertyColumnUpdateable[propertyIndex][columnIndex]) {
+                        columnNames.add(propertyColumnNames[columnIndex]);
+                    }
+                }
+            }
+        }
+        if (columnNames.isEmpty()) {
+            return null;
+        }
+        List<String> conditions = new LinkedList<>();
+        for (String keyColumn : getKeyColumns(0)) {
+            conditions.add(keyColumn + " = ?");
+        }
+        if (isVersioned()) {
+            conditions.add(getVersionColumnName() + " = ?");
+        }
+        return Arrays.asList(
+                "update ",
+                getTableName(0),
+                " set ",
+                columnNames.stream().map(c -> c + " = ?").collect(Collectors.joining(", ")),
+                " where ",
+                conditions.stream().collect(Collectors.joining(" and "))
+        ).stream().collect(Collectors.joining());
+    }
+
+    private boolean isMultiRowUpsertable(Object rowId, Object object) {
+        return rowId == null
+        && getTableSpan() == 1
+        && isMutable()
+        && !isVersioned()
+        && !hasUpdateGeneratedProperties()
+        && !hasUninitializedLazyProperties(object);
+    }
+
+    private boolean hasUpdateableColumn(boolean[] includeProperty) {
+        boolean[][] propertyColumnUpdateable = getPropertyColumnUpdateable();
+        for (int i = 0; i < includeProperty.length; i++) {
+            if (includeProperty[i]) {
+                for (boolean updateable : propertyColumnUpdateable[i]) {
+                    if (updateable) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the upserts buffered by all persisters of the session. Runs
+     * before the first bulk delete and after the flush's actions, before
+     * postFlush.
+     */
+    public static void executeUpserts(SharedSessionContractImplementor session) {
+        LOG.trace("");
+        SessionEventListenerImpl listener = SessionEventListenerImpl.find(session);
+        if (listener == null || listener.getUpdates().isEmpty()) {
+            return;
+        }
+        Map<Object, List<Object>> updates = listener.getUpdates();
+        List<Entry<Object, List<Object>>> entries = new ArrayList<>(updates.entrySet());
+        updates.clear();
+        for (Entry<Object, List<Object>> entry : entries) {
+            SingleTableEntityPersisterImpl persister = SingleTableEntityPersisterImpl.class.cast(entry.getKey());
+            Map<MultiRowInsert, List<Upsert>> groups = new LinkedHashMap<>();
+            for (Object o : entry.getValue()) {
+                Upsert upsert = Upsert.class.cast(o);
+                groups.computeIfAbsent(persister.getMySQLUpsert(upsert.includeProperty), k -> new ArrayList<>()).add(upsert);
+            }
+            for (Entry<MultiRowInsert, List<Upsert>> group : groups.entrySet()) {
+                MultiRowInsert insert = group.getKey();
+                int maxRows = insert.getMaxRows(
+                        getJdbcBatchSize(session),
+                        persister.getIdentityInsertRowLength(),
+                        IntegratorImpl.INSTANCE.getServerVariables(session.getFactory()).getMaxAllowedPacket()
+                );
+                List<Upsert> upserts = group.getValue();
+                for (int from = 0; from < upserts.size(); from += maxRows) {
+                    persister.executeUpsert(insert, upserts.subList(from, Math.min(from + maxRows, upserts.size())), session);
+                }
+            }
+        }
+    }
+
+    private void executeUpsert(MultiRowInsert insert, List<Upsert> upserts, SharedSessionContractImplementor session) {
+        LOG.trace("");
+        String sql = insert.toStatementString(upserts.size());
+        PreparedStatement ps = null;
+        try {
+            ps = SessionEventListenerImpl
+            .get(session)
+            .getStatementCache()
+            .prepareStatement(
+                    session.getJdbcCoordinator().getLogicalConnection().getPhysicalConnection(),
+                    sql,
+                    Statement.NO_GENERATED_KEYS
+            );
+            session.getJdbcServices().getSqlStatementLogger().logStatement(sql);
+            boolean[][] propertyColumnUpdateable = getPropertyColumnUpdateable();
+            Type[] propertyTypes = getPropertyTypes();
+            int index = 1;
+            for (Upsert upsert : upserts) {
+                for (int i = 0; i < upsert.includeProperty.length; i++) {
+                    if (upsert.includeProperty[i] && isPropertyOfTable(i, 0)) {
+                        propertyTypes[i].nullSafeSet(ps, upsert.fields[i], index, propertyColumnUpdateable[i], session);
+                        index += ArrayHelper.countTrue(propertyColumnUpdateable[i]);
+                    }
+                }
+                getIdentifierType().nullSafeSet(ps, upsert.id, index, session);
+                index += getIdentifierColumnSpan();
+            }
+            ps.executeUpdate();
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            SessionEventListenerImpl.get(session).getStatementCache().evict(ps);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            SessionEventListenerImpl.get(session).getStatementCache().evict(ps);
+            throw new RuntimeException(e);
+        } finally {
+            if (ps != null) {
+                session.getJdbcCoordinator().afterStatementExecution();
+            }
+        }
     }
 
     private void delete(
@@ -232,65 +669,50 @@ public class SingleTableEntityPersisterImpl extends SingleTableEntityPersister i
             DeleteEventListenerImpl deleteEventListener
     ) {
         LOG.trace("");
-        String sessionIdentifierExt = session.getSessionIdentifier().toString() + System.identityHashCode(session);
-        List<Object> allEntities = deleteEventListener.remove(sessionIdentifierExt);
+        if (multiRowUpsert) {
+            executeUpserts(session);
+        }
+        List<Object> allEntities = deleteEventListener.remove(session);
 
         if (allEntities != null && !allEntities.isEmpty()) {
             List<List<Object>> sorted = SortUtils.sort(allEntities, session);
 
             for (int i = sorted.size() - 1; i >= 0; i--) {
-                List<List<Object>> batches = toBatches(sorted.get(i), getJdbcBatchSize(session));
+                if (sorted.get(i).isEmpty()) {
+                    continue;
+                }
+                EntityPersister groupPersister = session.getEntityPersister(null, sorted.get(i).get(0));
+                SingleTableEntityPersisterImpl groupPersisterImpl = SingleTableEntityPersisterImpl.class.cast(groupPersister);
+                InListPlanner planner = groupPersisterImpl.getInListPlanner();
+                List<Object> group = sorted.get(i);
+                if (groupPersisterImpl.isIntegralKey()) {
+                    group = groupPersisterImpl.deleteRanges(group, session);
+                }
+                if (groupPersisterImpl.bulkDeleteRetries > 0) {
+                    group = groupPersisterImpl.sortByKey(group, session);
+                }
+                List<List<Object>> batches = planner.plan(group);
 
                 for (List<Object> batch : batches) {
 
                     if (!batch.isEmpty()) {
                         SingleTableEntityPersisterImpl persister = null;
                         List<Serializable> keys = null;
-                        PreparedStatement ps = null;
                         try {
                             if (persister == null) {
                                 EntityPersister entityPersister = session.getEntityPersister(null, batch.get(0));
                                 persister = SingleTableEntityPersisterImpl.class.cast(entityPersister);
                             }
-                            String[] keyColumns = persister.getKeyColumns(0);
-
-                            if (keyColumns.length == 1) {
-                                keys = new LinkedList<>();
-                                for (Object entity : batch) {
-                                    Serializable key = persister.getIdentifier(entity, session);
-                                    keys.add(key);
-                                }
-                                String sql = Arrays.asList(
-                                        "delete from ",
-                                        persister.getTableName(0),
-                                        " where ",
-                                        keyColumns[0],
-                                        " in (",
-                                        keys.stream().map(s -> "?").collect(Collectors.joining(", ")),
-                                        ")"
-                                ).stream().collect(Collectors.joining());
-                                ps = session.getJdbcCoordinator().getStatementPreparer().prepareStatement(sql, false);
-                                for (int j = 0; j < keys.size(); j++) {
-                                    ps.setObject(j + 1, keys.get(j));
-                                }
-                                ps.executeUpdate();
-                            } else {
-                                for (Object entity : batch) {
-
-                                    Serializable identifier = persister.getIdentifier(entity, session);
-                                    Object vers = persister.getVersion(entity);
-                                    persister.delete(identifier, vers, entity, session);
-                                }
+                            keys = new ArrayList<>(batch.size());
+                            for (Object entity : batch) {
+                                Serializable key = persister.propertyAccessors.getIdentifier(entity, session);
+                                keys.add(key);
                             }
+                            persister.executeBulkDelete(keys, session, 0);
                         } catch (RuntimeException e) {
                             throw e;
                         } catch (Exception e) {
                             throw new RuntimeException(e);
-                        } finally {
-                            if (ps != null) {
-                                session.getJdbcCoordinator().getLogicalConnection().getResourceRegistry().release(ps);
-                                session.getJdbcCoordinator().afterStatementExecution();
-                            }
                         }
                     }
                 }
@@ -298,33 +720,336 @@ public class SingleTableEntityPersisterImpl extends SingleTableEntityPersister i
         }
     }
 
-    private int getJdbcBatchSize(SharedSessionContractImplementor session) {
+    /**
+     * Executes one IN list delete. With retries enabled the statement runs
+     * under a savepoint; on a lock wait timeout the savepoint is rolled back
+     * and the chunk is retried in two halves after an exponential backoff.
+     * Deadlocks are counted and rethrown: InnoDB rolls back the whole
+     * transaction for them, so there is nothing left to retry.
+     */
+    private void executeBulkDelete(
+            List<Serializable> keys,
+            SharedSessionContractImplementor session,
+            int attempt
+    ) throws SQLException {
+        LOG.trace("");
+        Connection connection = session.getJdbcCoordinator().getLogicalConnection().getPhysicalConnection();
+        Savepoint savepoint = bulkDeleteRetries > 0 ? connection.setSavepoint() : null;
+        String[] keyColumns = getKeyColumns(0);
+        boolean retry = false;
+        PreparedStatement ps = null;
+        try {
+            int rows = getInListPlanner().getPaddedSize(keys.size());
+            String sql = generateBulkDeleteString(
+                    getTableName(0),
+                    keyColumns,
+                    rows,
+                    session.getJdbcServices().getDialect().supportsRowValueConstructorSyntaxInInList()
+            );
+            ps = SessionEventListenerImpl
+            .get(session)
+            .getStatementCache()
+            .prepareStatement(connection, sql, Statement.NO_GENERATED_KEYS);
+            session.getJdbcServices().getSqlStatementLogger().logStatement(sql);
+            int index = 1;
+            for (int i = 0; i < rows; i++) {
+                // padding repeats the last key
+                int k = Math.min(i, keys.size() - 1);
+                if (keys instanceof LongKeyList) {
+                    bindIntegralKey(ps, index, LongKeyList.class.cast(keys).getLong(k));
+                } else {
+                    getIdentifierType().nullSafeSet(ps, keys.get(k), index, session);
+                }
+                index += keyColumns.length;
+            }
+            long start = System.nanoTime();
+            ps.executeUpdate();
+            getInListPlanner().record(keys.size(), System.nanoTime() - start);
+        } catch (SQLException e) {
+            SessionEventListenerImpl.get(session).getStatementCache().evict(ps);
+            if (e.getErrorCode() == ER_LOCK_DEADLOCK) {
+                bulkDeleteDeadlockCount.incrementAndGet();
+            }
+            if (savepoint == null || attempt >= bulkDeleteRetries || e.getErrorCode() != ER_LOCK_WAIT_TIMEOUT) {
+                throw e;
+            }
+            LOG.warn("lock wait timeout, retrying {} keys: {}", keys.size(), e.getMessage());
+            connection.rollback(savepoint);
+            retry = true;
+        } finally {
+            if (ps != null) {
+                session.getJdbcCoordinator().afterStatementExecution();
+            }
+            if (savepoint != null) {
+                releaseSavepoint(connection, savepoint);
+            }
+        }
+        if (retry) {
+            bulkDeleteRetryCount.incrementAndGet();
+            backoff(attempt);
+            if (keys.size() > 1) {
+                bulkDeleteSplitCount.incrementAndGet();
+                int half = keys.size() / 2;
+                executeBulkDelete(keys.subList(0, half), session, attempt + 1);
+                executeBulkDelete(keys.subList(half, keys.size()), session, attempt + 1);
+            } else {
+                executeBulkDelete(keys, session, attempt + 1);
+            }
+        }
+    }
+
+    private void releaseSavepoint(Connection connection, Savepoint savepoint) {
+        try {
+            connection.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            // gone with a transaction the server already rolled back
+            LOG.debug(e.getMessage(), e);
+        }
+    }
+
+    private void backoff(int attempt) {
+        long millis = (RETRY_BACKOFF_MILLIS << Math.min(attempt, 10))
+        + ThreadLocalRandom.current().nextLong(RETRY_BACKOFF_MILLIS);
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HibernateException(e);
+        }
+    }
+
+    private List<Object> sortByKey(List<Object> entities, SharedSessionContractImplementor session) {
+        LOG.trace("");
+        Map<Object, Serializable> keys = new IdentityHashMap<>();
+        for (Object entity : entities) {
+            keys.put(entity, propertyAccessors.getIdentifier(entity, session));
+        }
+        Type identifierType = getIdentifierType();
+        List<Object> list = new ArrayList<>(entities);
+        list.sort((e1, e2) -> identifierType.compare(keys.get(e1), keys.get(e2)));
+        return list;
+    }
+
+    /**
+     * Deletes runs of consecutive keys with {@code between} statements and
+     * returns the entities whose keys are not covered by a run.
+     */
+    private List<Object> deleteRanges(List<Object> entities, SharedSessionContractImplementor session) {
+        LOG.trace("");
+        if (entities.size() < RangeUtils.DEFAULT_MIN_RUN_LENGTH) {
+            return entities;
+        }
+        long[] keys = new long[entities.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = Number.class.cast(propertyAccessors.getIdentifier(entities.get(i), session)).longValue();
+        }
+        long[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        RangeUtils.Ranges ranges = RangeUtils.compact(sorted, RangeUtils.DEFAULT_MIN_RUN_LENGTH, getInListPlanner().getMaxChunkSize());
+        if (ranges.getRangeCount() == 0) {
+            return entities;
+        }
+        deleteRanges(ranges, session);
+        List<Object> remaining = new ArrayList<>(ranges.getSingleSet().size());
+        for (int i = 0; i < keys.length; i++) {
+            if (!ranges.isInRange(keys[i])) {
+                remaining.add(entities.get(i));
+            }
+        }
+        return remaining;
+    }
+
+    private void deleteRanges(RangeUtils.Ranges ranges, SharedSessionContractImplementor session) {
+        LOG.trace("");
+        String sql = Arrays.asList(
+                "delete from ",
+                getTableName(0),
+                " where ",
+                getKeyColumns(0)[0],
+                " between ? and ?"
+        ).stream().collect(Collectors.joining());
+        for (int i = 0; i < ranges.getRangeCount(); i++) {
+            PreparedStatement ps = null;
+            try {
+                ps = SessionEventListenerImpl
+                .get(session)
+                .getStatementCache()
+                .prepareStatement(
+                        session.getJdbcCoordinator().getLogicalConnection().getPhysicalConnection(),
+                        sql,
+                        Statement.NO_GENERATED_KEYS
+                );
+                session.getJdbcServices().getSqlStatementLogger().logStatement(sql);
+                ps.setLong(1, ranges.getStart(i));
+                ps.setLong(2, ranges.getEnd(i));
+                ps.executeUpdate();
+            } catch (RuntimeException e) {
+                SessionEventListenerImpl.get(session).getStatementCache().evict(ps);
+                throw e;
+            } catch (Exception e) {
+                SessionEventListenerImpl.get(session).getStatementCache().evict(ps);
+                throw new RuntimeException(e);
+            } finally {
+                if (ps != null) {
+                    session.getJdbcCoordinator().afterStatementExecution();
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the rows of this entity's table with the given integral keys,
+     * without loading entities: {@code between} statements for runs of
+     * consecutive keys and padded IN lists for the rest, decoded from the
+     * set chunk by chunk and bound as primitives. Dependent rows are not
+     * touched; {@link CascadeDelete} plans those.
+     */
+    public void deleteByIds(LongIdSet ids, SharedSessionContractImplementor session) {
+        LOG.trace("");
+        if (!integralKey) {
+            throw new IllegalStateException("Not an integral key: " + getEntityName());
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        RangeUtils.Ranges ranges = RangeUtils.compact(ids, RangeUtils.DEFAULT_MIN_RUN_LENGTH, getInListPlanner().getMaxChunkSize());
+        deleteRanges(ranges, session);
+        LongIdSet singles = ranges.getSingleSet();
+        long[] buffer = new long[0];
+        for (int from = 0; from < singles.size(); ) {
+            // the planned size only moves when the latency feedback doubles or halves it
+            int chunkSize = getInListPlanner().getPlannedChunkSize();
+            if (buffer.length != chunkSize) {
+                buffer = new long[chunkSize];
+            }
+            int count = singles.toArray(from, buffer);
+            try {
+                executeBulkDelete(new LongKeyList(buffer, 0, count, getIdentifierType().getReturnedClass()), session, 0);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            from += count;
+        }
+    }
+
+    private void bindIntegralKey(PreparedStatement ps, int index, long key) throws SQLException {
+        Class<?> keyClass = getIdentifierType().getReturnedClass();
+        if (Integer.class.equals(keyClass) || int.class.equals(keyClass)) {
+            ps.setInt(index, (int) key);
+        } else if (Short.class.equals(keyClass) || short.class.equals(keyClass)) {
+            ps.setShort(index, (short) key);
+        } else {
+            ps.setLong(index, key);
+        }
+    }
+
+    /**
+     * {@code k in (?, ...)} for single column keys,
+     * {@code (a, b) in ((?, ?), ...)} for composite keys when the dialect
+     * supports row values in IN lists and
+     * {@code (a = ? and b = ?) or ...} otherwise.
+     */
+    public static String generateBulkDeleteString(String tableName, String[] keyColumns, int rows, boolean rowValueInList) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("delete from ").append(tableName).append(" where ");
+        if (keyColumns.length == 1 || rowValueInList) {
+            String row = keyColumns.length == 1
+            ? "?"
+            : Arrays.stream(keyColumns).map(c -> "?").collect(Collectors.joining(", ", "(", ")"));
+            builder.append(keyColumns.length == 1 ? keyColumns[0] : "(" + String.join(", ", keyColumns) + ")");
+            builder.append(" in (");
+            for (int i = 0; i < rows; i++) {
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                builder.append(row);
+            }
+            builder.append(")");
+        } else {
+            String row = Arrays.stream(keyColumns).map(c -> c + " = ?").collect(Collectors.joining(" and ", "(", ")"));
+            for (int i = 0; i < rows; i++) {
+                if (i > 0) {
+                    builder.append(" or ");
+                }
+                builder.append(row);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static int getJdbcBatchSize(SharedSessionContractImplementor session) {
         return session.getJdbcBatchSize() != null
         ? session.getJdbcBatchSize()
         : session.getFactory().getSessionFactoryOptions().getJdbcBatchSize();
     }
 
-    private <E> List<List<E>> toBatches(List<E> list, int size) {
-        Function<Entry<Integer, E>, Integer> classifier;
-        classifier = (Entry<Integer, E> e) -> {
-            int number = e.getKey().intValue();
-            if (number % size != 0) {
-                return number / size * size + size;
-            } else {
-                return number;
+    /**
+     * Integral keys of a {@code long[]} slice, boxed only when read through
+     * the {@link List} interface.
+     */
+    private static class LongKeyList extends AbstractList<Serializable> implements RandomAccess {
+
+        private final long[] keys;
+        private final int from;
+        private final int to;
+        private final Class<?> keyClass;
+
+        private LongKeyList(long[] keys, int from, int to, Class<?> keyClass) {
+            super();
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+            this.keyClass = keyClass;
+        }
+
+        private long getLong(int index) {
+            return keys[from + index];
+        }
+
+        @Override
+        public Serializable get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
             }
-        };
-        Function<Entry<Integer, E>, E> mapper = (Entry<Integer, E> e) -> e.getValue();
-        return IntStream.range(0, list.size())
-        .mapToObj(i -> new SimpleEntry<>(i + 1, list.get(i)))
-        .collect(
-            Collectors.groupingBy(
-                classifier,
-                LinkedHashMap::new,
-                Collectors.mapping(mapper, Collectors.toList())
-            )
-        ).values().stream()
-        .collect(Collectors.toList());
+            long key = getLong(index);
+            if (Integer.class.equals(keyClass) || int.class.equals(keyClass)) {
+                return (int) key;
+            } else if (Short.class.equals(keyClass) || short.class.equals(keyClass)) {
+                return (short) key;
+            }
+            return key;
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public List<Serializable> subList(int fromIndex, int toIndex) {
+            if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+                throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex);
+            }
+            return new LongKeyList(keys, from + fromIndex, from + toIndex, keyClass);
+        }
+
+    }
+
+    private static class Upsert {
+
+        private final Serializable id;
+        private final Object[] fields;
+        private final boolean[] includeProperty;
+
+        private Upsert(Serializable id, Object[] fields, boolean[] includeProperty) {
+            super();
+            this.id = id;
+            this.fields = fields;
+            this.includeProperty = includeProperty;
+        }
+
     }
 
 }
@@ -1,22 +1,65 @@
 package com.exqudens.hibernate.repository;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.TypedQuery;
 
+import org.hibernate.FlushMode;
+import org.hibernate.LockOptions;
+import org.hibernate.NonUniqueObjectException;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.boot.Metadata;
+import org.hibernate.dialect.MySQLDialect;
 import org.hibernate.engine.jdbc.connections.spi.MultiTenantConnectionProvider;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.mapping.Collection;
+import org.hibernate.mapping.Component;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.Property;
+import org.hibernate.mapping.ToOne;
+import org.hibernate.mapping.Value;
+import org.hibernate.persister.entity.EntityPersister;
 import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.exqudens.hibernate.cfg.Settings;
+import com.exqudens.hibernate.integrator.IntegratorImpl;
+import com.exqudens.hibernate.jdbc.InListPlanner;
 import com.exqudens.hibernate.multitenancy.MultiTenantConnectionProviderImpl;
+import com.exqudens.hibernate.persister.CascadeDelete;
+import com.exqudens.hibernate.persister.PropertyAccessors;
+import com.exqudens.hibernate.persister.SingleTableEntityPersisterImpl;
+import com.exqudens.hibernate.util.LongIdSet;
+import com.exqudens.hibernate.util.RangeUtils;
 
 public class HibernateRepository<T, ID extends Serializable> implements Repository<T, ID> {
 
@@ -69,14 +112,247 @@ public class HibernateRepository<T, ID extends Serializable> implements Reposito
         return typedQueryFindAll().getResultList();
     }
 
+    /**
+     * Loads the ids in {@code between} ranges and padded IN list chunks and
+     * returns the found entities in the order of their first requested id.
+     * With {@link Settings#FIND_ALL_PARALLELISM} above 1 and no connection
+     * held by this session the chunks run concurrently, each on its own
+     * read-only session; the loaded entities are then reattached to this
+     * session without SQL, or replaced by the instance it already manages,
+     * so the result is managed either way and nothing is merged.
+     */
     @Override
     public List<T> findAll(List<ID> ids) {
         LOG.trace("");
         if (ids == null || ids.isEmpty()) {
             return Collections.emptyList();
         }
+        SharedSessionContractImplementor sessionContract = em.unwrap(SharedSessionContractImplementor.class);
+        EntityPersister persister = sessionContract
+        .getFactory()
+        .getMetamodel()
+        .entityPersister(entityClass);
+        if (!(persister instanceof SingleTableEntityPersisterImpl)) {
+            preQuery();
+            return typedQueryFindAll(ids).getResultList();
+        }
+        SingleTableEntityPersisterImpl persisterImpl = SingleTableEntityPersisterImpl.class.cast(persister);
+        InListPlanner planner = persisterImpl.getInListPlanner();
+        List<Function<HibernateRepository<T, ID>, List<T>>> queries = new ArrayList<>();
+        List<ID> remaining = ids;
+        boolean integralId = Long.class.equals(idClass) || Integer.class.equals(idClass) || Short.class.equals(idClass);
+        if (integralId && persisterImpl.isIntegralKey() && ids.size() >= RangeUtils.DEFAULT_MIN_RUN_LENGTH) {
+            long[] sorted = ids.stream().mapToLong(id -> Number.class.cast(id).longValue()).sorted().toArray();
+            RangeUtils.Ranges ranges = RangeUtils.compact(sorted, RangeUtils.DEFAULT_MIN_RUN_LENGTH, planner.getMaxChunkSize());
+            for (int i = 0; i < ranges.getRangeCount(); i++) {
+                long from = ranges.getStart(i);
+                long to = ranges.getEnd(i);
+                queries.add(repository -> repository.findRange(from, to));
+            }
+            if (ranges.getRangeCount() > 0) {
+                remaining = new ArrayList<>(ranges.getSingles().length);
+                for (long single : ranges.getSingles()) {
+                    remaining.add(toId(single));
+                }
+            }
+        }
+        for (List<ID> chunk : planner.plan(remaining)) {
+            queries.add(repository -> repository.findChunk(chunk, planner));
+        }
+        return toRequestOrder(ids, executeQueries(queries), persister);
+    }
+
+    /**
+     * Same plan as {@link #findAll(List)} with the ids carried in a
+     * {@link LongIdSet}; each IN list chunk is decoded and boxed only when
+     * its query runs.
+     */
+    @Override
+    public List<T> findAll(long[] ids) {
+        LOG.trace("");
+        if (ids == null || ids.length == 0) {
+            return Collections.emptyList();
+        }
+        SharedSessionContractImplementor sessionContract = em.unwrap(SharedSessionContractImplementor.class);
+        EntityPersister persister = sessionContract
+        .getFactory()
+        .getMetamodel()
+        .entityPersister(entityClass);
+        if (!(persister instanceof SingleTableEntityPersisterImpl) || !isIntegralKey(persister)) {
+            return findAll(toIds(ids, 0, ids.length));
+        }
+        InListPlanner planner = SingleTableEntityPersisterImpl.class.cast(persister).getInListPlanner();
+        RangeUtils.Ranges ranges = RangeUtils.compact(
+                LongIdSet.of(ids),
+                RangeUtils.DEFAULT_MIN_RUN_LENGTH,
+                planner.getMaxChunkSize()
+        );
+        List<Function<HibernateRepository<T, ID>, List<T>>> queries = new ArrayList<>();
+        for (int i = 0; i < ranges.getRangeCount(); i++) {
+            long from = ranges.getStart(i);
+            long to = ranges.getEnd(i);
+            queries.add(repository -> repository.findRange(from, to));
+        }
+        LongIdSet singles = ranges.getSingleSet();
+        int chunkSize = planner.getPlannedChunkSize();
+        for (int from = 0; from < singles.size(); from += chunkSize) {
+            int chunkFrom = from;
+            queries.add(repository -> {
+                long[] chunk = new long[Math.min(chunkSize, singles.size() - chunkFrom)];
+                singles.toArray(chunkFrom, chunk);
+                return repository.findChunk(toIds(chunk, 0, chunk.length), planner);
+            });
+        }
+        List<T> entities = new ArrayList<>();
+        for (List<T> result : executeQueries(queries)) {
+            entities.addAll(result);
+        }
+        PropertyAccessors accessors = PropertyAccessors.of(persister);
+        entities.sort(Comparator.comparingLong(e -> Number.class.cast(accessors.getIdentifier(e, sessionContract)).longValue()));
+        return entities;
+    }
+
+    /**
+     * Reads the entities in id order read only, keeping at most JDBC batch
+     * size entities managed. On MySQL an entity without eagerly fetched
+     * associations is scrolled row by row ({@code fetchSize = Integer.MIN_VALUE})
+     * and the entities read are detached every batch size rows. A
+     * streaming result set blocks its connection, so the secondary selects
+     * of eager associations could not run; such entities, and other
+     * dialects, are read in keyset pages of batch size instead, see
+     * {@link #findPages(int)}, and their associations are loaded once the
+     * page is read ({@code hibernate.default_batch_fetch_size} batches those
+     * loads). The result set is closed with the stream.
+     */
+    @Override
+    public Stream<T> streamAll() {
+        LOG.trace("");
+        Session session = em.unwrap(Session.class);
+        SharedSessionContractImplementor sessionContract = em.unwrap(SharedSessionContractImplementor.class);
+        int batchSize = Math.max(getJdbcBatchSize(), 1);
+        if (!(sessionContract.getJdbcServices().getDialect() instanceof MySQLDialect) || hasEagerAssociations()) {
+            Iterator<List<T>> pages = findPages(batchSize, true);
+            List<T> lastPage = new ArrayList<>();
+            return StreamSupport
+            .stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .peek(page -> {
+                lastPage.clear();
+                lastPage.addAll(page);
+            })
+            .flatMap(List::stream)
+            .onClose(() -> detach(lastPage));
+        }
+        String hql = Arrays.asList(
+                "from ",
+                entityClass.getSimpleName(),
+                " order by ",
+                getIdPropertyName()
+        ).stream().collect(Collectors.joining());
+        preQuery();
+        ScrollableResults results = session.createQuery(hql, entityClass)
+        .setReadOnly(true)
+        .setFetchSize(Integer.MIN_VALUE)
+        .scroll(ScrollMode.FORWARD_ONLY);
+        List<T> returned = new ArrayList<>(batchSize);
+        Iterator<T> iterator = new Iterator<T>() {
+
+            private Boolean next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    if (returned.size() >= batchSize) {
+                        detach(returned);
+                        returned.clear();
+                    }
+                    next = results.next();
+                }
+                return next;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                next = null;
+                T entity = entityClass.cast(results.get(0));
+                returned.add(entity);
+                return entity;
+            }
+
+        };
+        return StreamSupport
+        .stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+        .onClose(() -> {
+            results.close();
+            detach(returned);
+        });
+    }
+
+    @Override
+    public List<T> findPage(ID afterId, int limit) {
+        LOG.trace("");
+        return findPage(afterId, limit, false);
+    }
+
+    /**
+     * The entities of the previous page are detached before each page after
+     * the first, so walking a whole table keeps only one page managed.
+     */
+    @Override
+    public Iterator<List<T>> findPages(int limit) {
+        LOG.trace("");
+        return findPages(limit, false);
+    }
+
+    private List<T> findPage(ID afterId, int limit, boolean readOnly) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
         preQuery();
-        return typedQueryFindAll(ids).getResultList();
+        return typedQueryFindPage(afterId, limit)
+        .setHint(QueryHints.READ_ONLY, readOnly)
+        .getResultList();
+    }
+
+    private Iterator<List<T>> findPages(int limit, boolean readOnly) {
+        SharedSessionContractImplementor sessionContract = em.unwrap(SharedSessionContractImplementor.class);
+        return new Iterator<List<T>>() {
+
+            private ID afterId;
+            private List<T> page;
+            private List<T> previous;
+            private boolean last;
+
+            @Override
+            public boolean hasNext() {
+                if (page == null && !last) {
+                    if (previous != null) {
+                        detach(previous);
+                        previous = null;
+                    }
+                    page = findPage(afterId, limit, readOnly);
+                    last = page.size() < limit;
+                    if (!page.isEmpty()) {
+                        T entity = page.get(page.size() - 1);
+                        afterId = idClass.cast(sessionContract.getEntityPersister(null, entity).getIdentifier(entity, sessionContract));
+                    }
+                }
+                return page != null && !page.isEmpty();
+            }
+
+            @Override
+            public List<T> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                previous = page;
+                page = null;
+                return previous;
+            }
+
+        };
     }
 
     @Override
@@ -104,6 +380,44 @@ public class HibernateRepository<T, ID extends Serializable> implements Reposito
         em.clear();
     }
 
+    @Override
+    public <S extends T> void updateTrusted(List<S> entities) {
+        LOG.trace("");
+        if (entities == null || entities.isEmpty()) {
+            return;
+        }
+        SharedSessionContractImplementor sessionContract = em.unwrap(SharedSessionContractImplementor.class);
+        Map<EntityPersister, List<S>> groups = new LinkedHashMap<>();
+        for (S entity : entities) {
+            groups.computeIfAbsent(sessionContract.getEntityPersister(null, entity), k -> new ArrayList<>()).add(entity);
+        }
+        if (!groups.keySet().stream().allMatch(p -> p instanceof SingleTableEntityPersisterImpl)) {
+            update(entities);
+            return;
+        }
+        Map<EntityPersister, Object[]> versions = new LinkedHashMap<>();
+        em.getTransaction().begin();
+        try {
+            for (Entry<EntityPersister, List<S>> group : groups.entrySet()) {
+                versions.put(
+                        group.getKey(),
+                        SingleTableEntityPersisterImpl.class.cast(group.getKey()).updateDetached(group.getValue(), sessionContract)
+                );
+            }
+            em.getTransaction().commit();
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            LOG.error(e.getMessage(), e);
+            throw e;
+        }
+        for (Entry<EntityPersister, List<S>> group : groups.entrySet()) {
+            SingleTableEntityPersisterImpl.class.cast(group.getKey()).setVersions(group.getValue(), versions.get(group.getKey()));
+        }
+        em.clear();
+    }
+
     @Override
     public <S extends T> void delete(List<S> entities) {
         LOG.trace("");
@@ -129,12 +443,196 @@ public class HibernateRepository<T, ID extends Serializable> implements Reposito
         em.clear();
     }
 
+    @Override
+    public void deleteByIds(List<ID> ids) {
+        LOG.trace("");
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        boolean integralId = Long.class.equals(idClass) || Integer.class.equals(idClass) || Short.class.equals(idClass);
+        if (!integralId) {
+            delete(findAllForDelete(ids));
+            return;
+        }
+        deleteByIds(ids.stream().mapToLong(id -> Number.class.cast(id).longValue()).toArray());
+    }
+
+    /**
+     * Deletes the rows with the given integral ids and their dependent rows
+     * without loading any entity, see {@link CascadeDelete}. Mappings the
+     * plan does not support are loaded and removed instead.
+     */
+    @Override
+    public void deleteByIds(long[] ids) {
+        LOG.trace("");
+        if (ids == null || ids.length == 0) {
+            return;
+        }
+        SharedSessionContractImplementor sessionContract = em.unwrap(SharedSessionContractImplementor.class);
+        EntityPersister persister = sessionContract
+        .getFactory()
+        .getMetamodel()
+        .entityPersister(entityClass);
+        CascadeDelete cascadeDelete = persister instanceof SingleTableEntityPersisterImpl && isIntegralKey(persister)
+        ? CascadeDelete.plan(SingleTableEntityPersisterImpl.class.cast(persister))
+        : null;
+        if (cascadeDelete == null) {
+            delete(findAllForDelete(toIds(ids, 0, ids.length)));
+            return;
+        }
+        em.getTransaction().begin();
+        try {
+            cascadeDelete.execute(LongIdSet.of(ids), sessionContract);
+            em.getTransaction().commit();
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            LOG.error(e.getMessage(), e);
+            throw e;
+        }
+        em.clear();
+    }
+
+    /**
+     * Loads the entities through this session, never on the parallel
+     * find-all workers, so they can be removed here.
+     */
+    private List<T> findAllForDelete(List<ID> ids) {
+        preQuery();
+        return em.unwrap(Session.class)
+        .byMultipleIds(entityClass)
+        .multiLoad(ids)
+        .stream()
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+    }
+
+    private List<List<T>> executeQueries(List<Function<HibernateRepository<T, ID>, List<T>>> queries) {
+        SharedSessionContractImplementor sessionContract = em.unwrap(SharedSessionContractImplementor.class);
+        ExecutorService executor = IntegratorImpl.INSTANCE.getFindAllExecutor(sessionContract.getFactory());
+        // workers need connections of their own; waiting for them while this
+        // session holds one could starve a small pool
+        if (
+                executor != null
+                && queries.size() > 1
+                && !sessionContract.getJdbcCoordinator().getLogicalConnection().isPhysicallyConnected()
+        ) {
+            return findAllParallel(queries, executor);
+        }
+        List<List<T>> results = new ArrayList<>(queries.size());
+        for (Function<HibernateRepository<T, ID>, List<T>> query : queries) {
+            results.add(query.apply(this));
+        }
+        return results;
+    }
+
+    private List<T> findRange(long from, long to) {
+        preQuery();
+        return typedQueryFindAll(from, to).getResultList();
+    }
+
+    private List<T> findChunk(List<ID> chunk, InListPlanner planner) {
+        preQuery();
+        long start = System.nanoTime();
+        List<T> entities = typedQueryFindAll(planner.pad(chunk)).getResultList();
+        planner.record(chunk.size(), System.nanoTime() - start);
+        return entities;
+    }
+
+    private List<List<T>> findAllParallel(List<Function<HibernateRepository<T, ID>, List<T>>> queries, ExecutorService executor) {
+        LOG.trace("");
+        EntityManagerFactory emf = em.getEntityManagerFactory();
+        List<Future<List<T>>> futures = new ArrayList<>(queries.size());
+        try {
+            for (Function<HibernateRepository<T, ID>, List<T>> query : queries) {
+                futures.add(executor.submit(() -> {
+                    EntityManager worker = emf.createEntityManager();
+                    try {
+                        Session session = worker.unwrap(Session.class);
+                        session.setDefaultReadOnly(true);
+                        session.setHibernateFlushMode(FlushMode.MANUAL);
+                        return query.apply(new HibernateRepository<>(entityClass, idClass, worker));
+                    } finally {
+                        worker.close();
+                    }
+                }));
+            }
+            List<List<T>> results = new ArrayList<>(futures.size());
+            for (Future<List<T>> future : futures) {
+                results.add(reattach(future.get()));
+            }
+            return results;
+        } catch (ExecutionException e) {
+            LOG.error(e.getMessage(), e);
+            if (e.getCause() instanceof RuntimeException) {
+                throw RuntimeException.class.cast(e.getCause());
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            for (Future<List<T>> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private List<T> reattach(List<T> entities) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(entityClass);
+        PropertyAccessors accessors = PropertyAccessors.of(persister);
+        List<T> managed = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            EntityKey key = session.generateEntityKey(accessors.getIdentifier(entity, session), persister);
+            Object existing = session.getPersistenceContext().getEntity(key);
+            if (existing != null) {
+                managed.add(entityClass.cast(existing));
+                continue;
+            }
+            try {
+                session.buildLockRequest(LockOptions.NONE).lock(entity);
+                managed.add(entity);
+            } catch (NonUniqueObjectException e) {
+                // a cascaded association was loaded by another chunk too
+                LOG.debug(e.getMessage());
+                existing = session.getPersistenceContext().getEntity(key);
+                if (existing == null) {
+                    throw e;
+                }
+                managed.add(entityClass.cast(existing));
+            }
+        }
+        return managed;
+    }
+
+    private List<T> toRequestOrder(List<ID> ids, List<List<T>> results, EntityPersister persister) {
+        SharedSessionContractImplementor sessionContract = em.unwrap(SharedSessionContractImplementor.class);
+        PropertyAccessors accessors = PropertyAccessors.of(persister);
+        Map<Serializable, T> entities = new HashMap<>();
+        for (List<T> result : results) {
+            for (T entity : result) {
+                entities.put(accessors.getIdentifier(entity, sessionContract), entity);
+            }
+        }
+        List<T> ordered = new ArrayList<>(entities.size());
+        for (ID id : ids) {
+            T entity = entities.remove(id);
+            if (entity != null) {
+                ordered.add(entity);
+            }
+        }
+        return ordered;
+    }
+
     private TypedQuery<T> typedQueryFindAll() {
         LOG.trace("");
         String jpql = Arrays.asList(
                 "from ",
                 entityClass.getSimpleName(),
-                " order by id"
+                " order by ",
+                getIdPropertyName()
         ).stream().collect(Collectors.joining());
         TypedQuery<T> typedQuery = em.createQuery(jpql, entityClass)
         .setMaxResults(getJdbcBatchSize());
@@ -146,16 +644,124 @@ public class HibernateRepository<T, ID extends Serializable> implements Reposito
         String jpql = Arrays.asList(
                 "from ",
                 entityClass.getSimpleName(),
-                " where id in :ids"
+                " where ",
+                getIdPropertyName(),
+                " in :ids"
         ).stream().collect(Collectors.joining());
-        SharedSessionContractImplementor sessionContract = em.unwrap(SharedSessionContractImplementor.class);
-        sessionContract.getJdbcBatchSize();
         TypedQuery<T> typedQuery = em.createQuery(jpql, entityClass)
-        .setMaxResults(getJdbcBatchSize())
+        .setMaxResults(Math.max(getJdbcBatchSize(), ids.size()))
         .setParameter("ids", ids);
         return typedQuery;
     }
 
+    private TypedQuery<T> typedQueryFindAll(long from, long to) {
+        LOG.trace("");
+        String jpql = Arrays.asList(
+                "from ",
+                entityClass.getSimpleName(),
+                " where ",
+                getIdPropertyName(),
+                " between :from and :to"
+        ).stream().collect(Collectors.joining());
+        TypedQuery<T> typedQuery = em.createQuery(jpql, entityClass)
+        .setMaxResults((int) Math.min(to - from + 1, Integer.MAX_VALUE))
+        .setParameter("from", toId(from))
+        .setParameter("to", toId(to));
+        return typedQuery;
+    }
+
+    private TypedQuery<T> typedQueryFindPage(ID afterId, int limit) {
+        LOG.trace("");
+        String idPropertyName = getIdPropertyName();
+        String jpql = Arrays.asList(
+                "from ",
+                entityClass.getSimpleName(),
+                afterId != null ? " where " + idPropertyName + " > :afterId" : "",
+                " order by ",
+                idPropertyName
+        ).stream().collect(Collectors.joining());
+        TypedQuery<T> typedQuery = em.createQuery(jpql, entityClass)
+        .setMaxResults(limit);
+        if (afterId != null) {
+            typedQuery.setParameter("afterId", afterId);
+        }
+        return typedQuery;
+    }
+
+    private String getIdPropertyName() {
+        String idPropertyName = em
+        .unwrap(SharedSessionContractImplementor.class)
+        .getFactory()
+        .getMetamodel()
+        .entityPersister(entityClass)
+        .getIdentifierPropertyName();
+        return idPropertyName != null ? idPropertyName : "id";
+    }
+
+    private boolean hasEagerAssociations() {
+        Metadata metadata = IntegratorImpl.INSTANCE.getMetadata(em.unwrap(SharedSessionContractImplementor.class).getFactory());
+        PersistentClass persistentClass = metadata != null ? metadata.getEntityBinding(entityClass.getName()) : null;
+        if (persistentClass == null) {
+            return true;
+        }
+        Iterator<?> properties = persistentClass.getPropertyClosureIterator();
+        while (properties.hasNext()) {
+            if (isEager(Property.class.cast(properties.next()).getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isEager(Value value) {
+        if (value instanceof Component) {
+            Iterator<?> properties = Component.class.cast(value).getPropertyIterator();
+            while (properties.hasNext()) {
+                if (isEager(Property.class.cast(properties.next()).getValue())) {
+                    return true;
+                }
+            }
+            return false;
+        } else if (value instanceof ToOne) {
+            return !ToOne.class.cast(value).isLazy();
+        } else if (value instanceof Collection) {
+            return !Collection.class.cast(value).isLazy();
+        }
+        return false;
+    }
+
+    private boolean isIntegralKey(EntityPersister persister) {
+        return (Long.class.equals(idClass) || Integer.class.equals(idClass) || Short.class.equals(idClass))
+        && SingleTableEntityPersisterImpl.class.cast(persister).isIntegralKey();
+    }
+
+    private List<ID> toIds(long[] values, int from, int to) {
+        List<ID> ids = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            ids.add(toId(values[i]));
+        }
+        return ids;
+    }
+
+    private ID toId(long value) {
+        if (Long.class.equals(idClass)) {
+            return idClass.cast(value);
+        } else if (Integer.class.equals(idClass)) {
+            return idClass.cast((int) value);
+        } else if (Short.class.equals(idClass)) {
+            return idClass.cast((short) value);
+        }
+        throw new IllegalArgumentException("Not an integral id class: " + idClass.getName());
+    }
+
+    private void detach(List<T> entities) {
+        for (T entity : entities) {
+            if (em.contains(entity)) {
+                em.detach(entity);
+            }
+        }
+    }
+
     private int getJdbcBatchSize() {
         SharedSessionContractImplementor session = em.unwrap(SharedSessionContractImplementor.class);
         return session.getJdbcBatchSize() != null
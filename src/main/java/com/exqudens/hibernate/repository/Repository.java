@@ -1,17 +1,65 @@
 package com.exqudens.hibernate.repository;
 
 import java.io.Serializable;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface Repository<T, ID extends Serializable> {
 
     <S extends T> List<S> save(List<S> entities);
 
     List<T> findAll();
+
+    /**
+     * Entities with the given ids, in the order of their first occurrence in
+     * {@code ids}.
+     */
     List<T> findAll(List<ID> ids);
 
+    /**
+     * Entities with the given integral ids, in id order rather than the
+     * order of {@code ids}, unlike {@link #findAll(List)}.
+     */
+    List<T> findAll(long[] ids);
+
+    /**
+     * All entities in id order, read through a forward only cursor or in
+     * keyset pages with a bounded number of entities managed at a time. The
+     * stream may hold a JDBC result set and has to be closed.
+     */
+    Stream<T> streamAll();
+
+    /**
+     * Up to {@code limit} entities with an id greater than {@code afterId}
+     * in id order, the first page when {@code afterId} is {@code null}.
+     */
+    List<T> findPage(ID afterId, int limit);
+
+    /**
+     * Pages of {@link #findPage(Serializable, int)}, each one keyed on the
+     * last id of the previous page.
+     */
+    Iterator<List<T>> findPages(int limit);
+
     <S extends T> void update(List<S> entities);
 
+    /**
+     * Writes the given detached entities without loading them first. Their
+     * state is trusted as is: only the entities' own columns are written,
+     * nothing is cascaded and collections are not updated. Versions are
+     * checked and incremented on the entities after the commit.
+     */
+    <S extends T> void updateTrusted(List<S> entities);
+
     <S extends T> void delete(List<S> entities);
 
+    /**
+     * Deletes the entities with the given ids and their cascaded dependents
+     * without loading them where the mapping allows it.
+     */
+    void deleteByIds(List<ID> ids);
+
+    void deleteByIds(long[] ids);
+
 }
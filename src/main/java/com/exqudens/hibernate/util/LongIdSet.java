@@ -0,0 +1,296 @@
+package com.exqudens.hibernate.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Immutable sorted set of distinct {@code long} ids, delta encoded. Values
+ * are kept in blocks of {@link #BLOCK_SIZE}: the first value of a block is
+ * stored as is, the following ones as unsigned variable length deltas to
+ * their predecessor, so dense id lists take one or two bytes per id.
+ * Iteration and chunk decoding never box.
+ */
+public class LongIdSet {
+
+    public static final int BLOCK_SIZE;
+
+    private static final Logger LOG;
+
+    static {
+        LOG = LoggerFactory.getLogger(LongIdSet.class);
+        LOG.trace("");
+        BLOCK_SIZE = 128;
+    }
+
+    /**
+     * Sorted and distinct copy of the given ids.
+     */
+    public static LongIdSet of(long[] ids) {
+        LOG.trace("");
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        Builder builder = new Builder();
+        for (long id : sorted) {
+            builder.add(id);
+        }
+        return builder.build();
+    }
+
+    public static LongIdSet union(LongIdSet a, LongIdSet b) {
+        LOG.trace("");
+        Builder builder = new Builder();
+        PrimitiveIterator.OfLong i = a.iterator();
+        PrimitiveIterator.OfLong j = b.iterator();
+        long x = 0;
+        long y = 0;
+        boolean hasX = false;
+        boolean hasY = false;
+        while (hasX || hasY || i.hasNext() || j.hasNext()) {
+            if (!hasX && i.hasNext()) {
+                x = i.nextLong();
+                hasX = true;
+            }
+            if (!hasY && j.hasNext()) {
+                y = j.nextLong();
+                hasY = true;
+            }
+            if (hasX && (!hasY || x <= y)) {
+                builder.add(x);
+                hasX = false;
+            } else {
+                builder.add(y);
+                hasY = false;
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Values of {@code a} not contained in {@code b}.
+     */
+    public static LongIdSet minus(LongIdSet a, LongIdSet b) {
+        LOG.trace("");
+        Builder builder = new Builder();
+        PrimitiveIterator.OfLong j = b.iterator();
+        boolean hasY = j.hasNext();
+        long y = hasY ? j.nextLong() : 0;
+        PrimitiveIterator.OfLong i = a.iterator();
+        while (i.hasNext()) {
+            long x = i.nextLong();
+            while (hasY && y < x) {
+                hasY = j.hasNext();
+                y = hasY ? j.nextLong() : 0;
+            }
+            if (!hasY || y != x) {
+                builder.add(x);
+            }
+        }
+        return builder.build();
+    }
+
+    private final byte[] data;
+    private final long[] blockFirsts;
+    private final int[] blockOffsets;
+    private final int size;
+
+    private LongIdSet(byte[] data, long[] blockFirsts, int[] blockOffsets, int size) {
+        super();
+        LOG.trace("");
+        this.data = data;
+        this.blockFirsts = blockFirsts;
+        this.blockOffsets = blockOffsets;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Approximate heap footprint of the encoded values in bytes.
+     */
+    public long getByteCount() {
+        return data.length + blockFirsts.length * 8L + blockOffsets.length * 4L;
+    }
+
+    public boolean contains(long value) {
+        int block = Arrays.binarySearch(blockFirsts, value);
+        if (block >= 0) {
+            return true;
+        }
+        block = -block - 2;
+        if (block < 0) {
+            return false;
+        }
+        PrimitiveIterator.OfLong iterator = iterator(block * BLOCK_SIZE);
+        for (int i = 0; i < BLOCK_SIZE && iterator.hasNext(); i++) {
+            long next = iterator.nextLong();
+            if (next == value) {
+                return true;
+            } else if (next > value) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    public PrimitiveIterator.OfLong iterator() {
+        return iterator(0);
+    }
+
+    /**
+     * Iterator starting at the value with the given position.
+     */
+    public PrimitiveIterator.OfLong iterator(int from) {
+        return new Cursor(Math.max(Math.min(from, size), 0));
+    }
+
+    /**
+     * Decodes up to {@code target.length} values starting at position
+     * {@code from} and returns the number of values written.
+     */
+    public int toArray(int from, long[] target) {
+        PrimitiveIterator.OfLong iterator = iterator(from);
+        int count = 0;
+        while (count < target.length && iterator.hasNext()) {
+            target[count++] = iterator.nextLong();
+        }
+        return count;
+    }
+
+    public long[] toArray() {
+        long[] values = new long[size];
+        toArray(0, values);
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("LongIdSet [size=");
+        builder.append(size);
+        builder.append(", byteCount=");
+        builder.append(getByteCount());
+        builder.append("]");
+        return builder.toString();
+    }
+
+    private class Cursor implements PrimitiveIterator.OfLong {
+
+        private int index;
+        private int position;
+        private long current;
+
+        private Cursor(int from) {
+            super();
+            int block = from / BLOCK_SIZE;
+            this.index = block * BLOCK_SIZE;
+            this.position = block < blockOffsets.length ? blockOffsets[block] : data.length;
+            while (index < from) {
+                nextLong();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < size;
+        }
+
+        @Override
+        public long nextLong() {
+            if (index >= size) {
+                throw new NoSuchElementException();
+            }
+            if (index % BLOCK_SIZE == 0) {
+                current = blockFirsts[index / BLOCK_SIZE];
+            } else {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    delta |= (b & 0x7FL) << shift;
+                    shift += 7;
+                } while (b < 0);
+                current += delta;
+            }
+            index++;
+            return current;
+        }
+
+    }
+
+    /**
+     * Appends values in ascending order; a value equal to the last one is
+     * ignored.
+     */
+    public static class Builder {
+
+        private byte[] data;
+        private long[] blockFirsts;
+        private int[] blockOffsets;
+        private int length;
+        private int size;
+        private long last;
+
+        public Builder() {
+            super();
+            this.data = new byte[64];
+            this.blockFirsts = new long[4];
+            this.blockOffsets = new int[4];
+        }
+
+        public Builder add(long value) {
+            if (size > 0) {
+                if (value == last) {
+                    return this;
+                } else if (value < last) {
+                    throw new IllegalArgumentException("Not ascending: " + value + " after " + last);
+                }
+            }
+            if (size % BLOCK_SIZE == 0) {
+                int block = size / BLOCK_SIZE;
+                if (block == blockFirsts.length) {
+                    blockFirsts = Arrays.copyOf(blockFirsts, block * 2);
+                    blockOffsets = Arrays.copyOf(blockOffsets, block * 2);
+                }
+                blockFirsts[block] = value;
+                blockOffsets[block] = length;
+            } else {
+                // unsigned, so deltas across the sign boundary stay correct
+                long delta = value - last;
+                if (length + 10 > data.length) {
+                    data = Arrays.copyOf(data, Math.max(data.length * 2, length + 10));
+                }
+                while ((delta & ~0x7FL) != 0) {
+                    data[length++] = (byte) ((delta & 0x7F) | 0x80);
+                    delta >>>= 7;
+                }
+                data[length++] = (byte) delta;
+            }
+            last = value;
+            size++;
+            return this;
+        }
+
+        public LongIdSet build() {
+            int blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            return new LongIdSet(
+                    Arrays.copyOf(data, length),
+                    Arrays.copyOf(blockFirsts, blocks),
+                    Arrays.copyOf(blockOffsets, blocks),
+                    size
+            );
+        }
+
+    }
+
+}
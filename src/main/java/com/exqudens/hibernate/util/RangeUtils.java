@@ -0,0 +1,153 @@
+package com.exqudens.hibernate.util;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class RangeUtils {
+
+    public static final int DEFAULT_MIN_RUN_LENGTH;
+
+    private static final Logger LOG;
+
+    static {
+        LOG = LoggerFactory.getLogger(RangeUtils.class);
+        LOG.trace("");
+        DEFAULT_MIN_RUN_LENGTH = 64;
+    }
+
+    private RangeUtils() {
+        super();
+        LOG.trace("");
+    }
+
+    /**
+     * Splits sorted keys into runs of consecutive values at least
+     * {@code minRunLength} long, each cut to at most {@code maxRangeLength}
+     * values, and the remaining single keys. Duplicates are collapsed.
+     */
+    public static Ranges compact(long[] sorted, int minRunLength, int maxRangeLength) {
+        LOG.trace("");
+        return compact(Arrays.stream(sorted).iterator(), minRunLength, maxRangeLength);
+    }
+
+    public static Ranges compact(LongIdSet sorted, int minRunLength, int maxRangeLength) {
+        LOG.trace("");
+        return compact(sorted.iterator(), minRunLength, maxRangeLength);
+    }
+
+    private static Ranges compact(PrimitiveIterator.OfLong sorted, int minRunLength, int maxRangeLength) {
+        long minRun = Math.max(minRunLength, 2);
+        long maxRange = Math.max(maxRangeLength, 1);
+        long[] starts = new long[16];
+        long[] ends = new long[starts.length];
+        int rangeCount = 0;
+        LongIdSet.Builder singles = new LongIdSet.Builder();
+        boolean open = false;
+        long start = 0;
+        long end = 0;
+        while (true) {
+            boolean hasNext = sorted.hasNext();
+            long value = hasNext ? sorted.nextLong() : 0;
+            if (hasNext && open && (value == end || value == end + 1)) {
+                end = value;
+                continue;
+            }
+            if (open) {
+                if (end - start + 1 >= minRun) {
+                    long from = start;
+                    while (true) {
+                        long to = end - from < maxRange ? end : from + maxRange - 1;
+                        if (rangeCount == starts.length) {
+                            starts = Arrays.copyOf(starts, rangeCount * 2);
+                            ends = Arrays.copyOf(ends, rangeCount * 2);
+                        }
+                        starts[rangeCount] = from;
+                        ends[rangeCount] = to;
+                        rangeCount++;
+                        if (to == end) {
+                            break;
+                        }
+                        from = to + 1;
+                    }
+                } else {
+                    for (long single = start; ; single++) {
+                        singles.add(single);
+                        if (single == end) {
+                            break;
+                        }
+                    }
+                }
+            }
+            if (!hasNext) {
+                break;
+            }
+            start = value;
+            end = value;
+            open = true;
+        }
+        return new Ranges(
+                Arrays.copyOf(starts, rangeCount),
+                Arrays.copyOf(ends, rangeCount),
+                singles.build()
+        );
+    }
+
+    public static class Ranges {
+
+        private final long[] starts;
+        private final long[] ends;
+        private final LongIdSet singles;
+
+        private Ranges(long[] starts, long[] ends, LongIdSet singles) {
+            super();
+            this.starts = starts;
+            this.ends = ends;
+            this.singles = singles;
+        }
+
+        public int getRangeCount() {
+            return starts.length;
+        }
+
+        public long getStart(int index) {
+            return starts[index];
+        }
+
+        public long getEnd(int index) {
+            return ends[index];
+        }
+
+        public long[] getSingles() {
+            return singles.toArray();
+        }
+
+        public LongIdSet getSingleSet() {
+            return singles;
+        }
+
+        public boolean isInRange(long value) {
+            int index = Arrays.binarySearch(starts, value);
+            if (index >= 0) {
+                return true;
+            }
+            index = -index - 2;
+            return index >= 0 && value <= ends[index];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append("Ranges [rangeCount=");
+            builder.append(starts.length);
+            builder.append(", singleCount=");
+            builder.append(singles.size());
+            builder.append("]");
+            return builder.toString();
+        }
+
+    }
+
+}
@@ -1,35 +1,45 @@
 package com.exqudens.hibernate.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
 
+import org.hibernate.Hibernate;
 import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
-import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.internal.util.config.ConfigurationHelper;
 import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
 import org.hibernate.type.CollectionType;
 import org.hibernate.type.EntityType;
-import org.hibernate.type.ForeignKeyDirection;
-import org.hibernate.type.OneToOneType;
 import org.hibernate.type.Type;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.exqudens.hibernate.cfg.Settings;
+import com.exqudens.hibernate.integrator.IntegratorImpl;
+import com.exqudens.hibernate.persister.PropertyAccessors;
+
 public class SortUtils {
 
+    public static final int DEFAULT_PARALLEL_SORT_THRESHOLD;
+
     private static final Logger LOG;
+    private static final int MIN_PARALLEL_CHUNK_SIZE;
 
     static {
         LOG = LoggerFactory.getLogger(SortUtils.class);
         LOG.trace("");
+        DEFAULT_PARALLEL_SORT_THRESHOLD = 50000;
+        MIN_PARALLEL_CHUNK_SIZE = 4096;
     }
 
     private SortUtils() {
@@ -38,72 +48,90 @@ public class SortUtils {
     }
 
     public static List<List<Object>> sort(List<Object> entities, SharedSessionContractImplementor session) {
-        LOG.trace("");
-        Map<BatchIdentifier, List<Object>> actionBatches = null;
-        List<BatchIdentifier> latestBatches = new ArrayList<>();
-        for (Object entity : entities) {
-            EntityPersister entityPersister = session.getEntityPersister(null, entity);
-            BatchIdentifier batchIdentifier = new BatchIdentifier(entityPersister.getEntityName(), entityPersister.getRootEntityName());
+        int parallelThreshold = ConfigurationHelper.getInt(
+                Settings.PARALLEL_SORT_THRESHOLD,
+                session.getFactory().getProperties(),
+                DEFAULT_PARALLEL_SORT_THRESHOLD
+        );
+        return sort(entities, session, parallelThreshold);
+    }
 
-            int index = latestBatches.indexOf(batchIdentifier);
-            if (index != -1) {
-                batchIdentifier = latestBatches.get(index);
-            } else {
-                latestBatches.add(batchIdentifier);
+    /**
+     * Parent first groups of the given entities, sorted in parallel from
+     * {@code parallelThreshold} entities on.
+     */
+    public static List<List<Object>> sort(
+            List<Object> entities,
+            SharedSessionContractImplementor session,
+            int parallelThreshold
+    ) {
+        LOG.trace("");
+        SessionFactoryImplementor factory = session.getFactory();
+        WriteOrder writeOrder = IntegratorImpl.INSTANCE.getWriteOrder(factory);
+        List<Object> list = entities instanceof RandomAccess ? entities : new ArrayList<>(entities);
+        int size = list.size();
+        int bucketCount = writeOrder.size() + 1;
+        boolean parallel = size >= Math.max(parallelThreshold, 1);
+        int chunkSize = parallel
+        ? Math.max(size / (ForkJoinPool.getCommonPoolParallelism() * 4), MIN_PARALLEL_CHUNK_SIZE)
+        : Math.max(size, 1);
+        int chunkCount = (size + chunkSize - 1) / chunkSize;
+
+        int[] ranks = new int[size];
+        int[][] counts = new int[chunkCount][bucketCount];
+        forEachChunk(chunkCount, parallel, c -> {
+            Class<?> lastClass = null;
+            int rank = -1;
+            for (int i = c * chunkSize, end = Math.min(i + chunkSize, size); i < end; i++) {
+                Object entity = list.get(i);
+                if (entity.getClass() != lastClass) {
+                    lastClass = entity.getClass();
+                    rank = writeOrder.getRank(getEntityPersister(factory, entity).getEntityName());
+                    if (rank == -1) {
+                        rank = writeOrder.size();
+                    }
+                }
+                ranks[i] = rank;
+                counts[c][rank]++;
+            }
+        });
+
+        Object[][] buckets = new Object[bucketCount][];
+        for (int b = 0; b < bucketCount; b++) {
+            int offset = 0;
+            for (int c = 0; c < chunkCount; c++) {
+                int count = counts[c][b];
+                counts[c][b] = offset;
+                offset += count;
             }
-            addParentChildEntityNames(entity, batchIdentifier, session);
-            actionBatches = addToBatch(batchIdentifier, entity, actionBatches);
+            buckets[b] = offset > 0 ? new Object[offset] : null;
         }
-
-        for (int i = 0; i < latestBatches.size(); i++) {
-            BatchIdentifier batchIdentifier = latestBatches.get(i);
-
-            // Iterate previous batches and make sure that parent types are
-            // before children
-            // Since the outer loop looks at each batch entry individually, we
-            // need to verify that any
-            // prior batches in the list are not considered children (or have a
-            // parent) of the current
-            // batch. If so, we reordered them.
-            for (int j = i - 1; j >= 0; j--) {
-                BatchIdentifier prevBatchIdentifier = latestBatches.get(j);
-                if (prevBatchIdentifier.hasAnyParentEntityNames(batchIdentifier)) {
-                    latestBatches.remove(batchIdentifier);
-                    latestBatches.add(j, batchIdentifier);
-                }
+        forEachChunk(chunkCount, parallel, c -> {
+            int[] offsets = counts[c];
+            for (int i = c * chunkSize, end = Math.min(i + chunkSize, size); i < end; i++) {
+                buckets[ranks[i]][offsets[ranks[i]]++] = list.get(i);
             }
+        });
 
-            // Iterate next batches and make sure that children types are after
-            // parents.
-            // Since the outer loop looks at each batch entry individually and
-            // the prior loop will reorder
-            // entries as well, we need to look and verify if the current batch
-            // is a child of the next
-            // batch or if the current batch is seen as a parent or child of the
-            // next batch.
-            for (int j = i + 1; j < latestBatches.size(); j++) {
-                BatchIdentifier nextBatchIdentifier = latestBatches.get(j);
-
-                final boolean nextBatchHasChild = nextBatchIdentifier.hasAnyChildEntityNames(batchIdentifier);
-                final boolean batchHasChild = batchIdentifier.hasAnyChildEntityNames(nextBatchIdentifier);
-                final boolean batchHasParent = batchIdentifier.hasAnyParentEntityNames(nextBatchIdentifier);
-
-                // Take care of unidirectional @OneToOne associations but
-                // exclude bidirectional @ManyToMany
-                if ((nextBatchHasChild && !batchHasChild) || batchHasParent) {
-                    latestBatches.remove(batchIdentifier);
-                    latestBatches.add(j, batchIdentifier);
-                }
+        List<List<List<Object>>> groups = new ArrayList<>(Collections.nCopies(bucketCount, null));
+        forEachChunk(bucketCount, parallel, b -> {
+            if (buckets[b] == null) {
+                return;
             }
-        }
+            List<Object> bucket = Arrays.asList(buckets[b]);
+            if (b < writeOrder.size() && writeOrder.isSelfReferencing(writeOrder.getEntityNames().get(b))) {
+                groups.set(b, layer(bucket, factory));
+            } else {
+                groups.set(b, Collections.singletonList(bucket));
+            }
+        });
 
-        // now rebuild the insertions list. There is a batch for each entry in
-        // the name list.
         List<List<Object>> sorted = new ArrayList<>();
-        for (BatchIdentifier rootIdentifier : latestBatches) {
-            List<Object> batch = actionBatches.get(rootIdentifier);
-            List<List<Object>> sortedBatch = sortBatch(batch, session);
-            for (List<Object> l : sortedBatch) {
+        for (List<List<Object>> group : groups) {
+            if (group == null) {
+                continue;
+            }
+            for (List<Object> l : group) {
                 if (!l.isEmpty()) {
                     sorted.add(l);
                 }
@@ -112,167 +140,163 @@ public class SortUtils {
         return sorted;
     }
 
-    private static void addParentChildEntityNames(Object entity, BatchIdentifier batchIdentifier, SharedSessionContractImplementor session) {
-        LOG.trace("");
-        EntityPersister entityPersister = session.getEntityPersister(null, entity);
-        Object[] propertyValues = entityPersister.getPropertyValuesToInsert(entity, Collections.emptyMap(), session);
-        ClassMetadata classMetadata = entityPersister.getClassMetadata();
+    private static void forEachChunk(int chunkCount, boolean parallel, IntConsumer task) {
+        if (parallel && chunkCount > 1) {
+            ForkJoinPool.commonPool().invoke(new ChunkAction(0, chunkCount, task));
+        } else {
+            for (int c = 0; c < chunkCount; c++) {
+                task.accept(c);
+            }
+        }
+    }
 
-        if (classMetadata != null) {
-            Type[] propertyTypes = classMetadata.getPropertyTypes();
+    /**
+     * Entities of one self-referencing type split into tree levels, root level first.
+     */
+    public static List<List<Object>> layer(List<Object> entities, SharedSessionContractImplementor session) {
+        return layer(entities, session.getFactory());
+    }
 
-            for (int i = 0; i < propertyValues.length; i++) {
-                Object value = propertyValues[i];
-                Type type = propertyTypes[i];
+    public static List<List<Object>> layer(List<Object> entities, SessionFactoryImplementor factory) {
+        LOG.trace("");
+        int[] depths = depths(entities, factory);
+        List<List<Object>> layers = new ArrayList<>();
+        for (int i = 0; i < depths.length; i++) {
+            while (layers.size() <= depths[i]) {
+                layers.add(new ArrayList<>());
+            }
+            layers.get(depths[i]).add(entities.get(i));
+        }
+        return layers;
+    }
 
-                if (type.isEntityType() && value != null) {
-                    EntityType entityType = (EntityType) type;
-                    String entityName = entityType.getName();
-                    String rootEntityName = session.getFactory().getMetamodel().entityPersister(entityName).getRootEntityName();
+    /**
+     * Depth of every entity in the tree formed by its self references within the list.
+     */
+    public static int[] depths(List<Object> entities, SharedSessionContractImplementor session) {
+        return depths(entities, session.getFactory());
+    }
 
-                    if (entityType.isOneToOne() && OneToOneType.class.cast(entityType).getForeignKeyDirection() == ForeignKeyDirection.TO_PARENT) {
-                        batchIdentifier.getChildEntityNames().add(entityName);
-                        if (!rootEntityName.equals(entityName)) {
-                            batchIdentifier.getChildEntityNames().add(rootEntityName);
-                        }
-                    } else {
-                        batchIdentifier.getParentEntityNames().add(entityName);
-                        if (!rootEntityName.equals(entityName)) {
-                            batchIdentifier.getParentEntityNames().add(rootEntityName);
-                        }
-                    }
-                } else if (type.isCollectionType() && value != null) {
-                    CollectionType collectionType = (CollectionType) type;
-                    SessionFactoryImplementor sessionFactory = session.getFactory();
-                    if (collectionType.getElementType(sessionFactory).isEntityType()) {
-                        String entityName = collectionType.getAssociatedEntityName(sessionFactory);
-                        String rootEntityName = session.getFactory().getMetamodel().entityPersister(entityName).getRootEntityName();
-                        batchIdentifier.getChildEntityNames().add(entityName);
-                        if (!rootEntityName.equals(entityName)) {
-                            batchIdentifier.getChildEntityNames().add(rootEntityName);
+    public static int[] depths(List<Object> entities, SessionFactoryImplementor factory) {
+        LOG.trace("");
+        Map<Object, Integer> positions = new IdentityHashMap<>(entities.size() * 2);
+        for (int i = 0; i < entities.size(); i++) {
+            positions.put(entities.get(i), i);
+        }
+        int[] parents = new int[entities.size()];
+        Arrays.fill(parents, -1);
+        Class<?> lastClass = null;
+        PropertyAccessors accessors = null;
+        int[] references = null;
+        int[] collections = null;
+        for (int i = 0; i < entities.size(); i++) {
+            Object entity = entities.get(i);
+            if (entity.getClass() != lastClass) {
+                lastClass = entity.getClass();
+                EntityPersister persister = getEntityPersister(factory, entity);
+                accessors = PropertyAccessors.of(persister);
+                references = getSelfReferences(persister, factory, false);
+                collections = getSelfReferences(persister, factory, true);
+            }
+            for (int index : references) {
+                Integer parent = positions.get(accessors.getPropertyValue(entity, index));
+                if (parent != null && parent != i) {
+                    parents[i] = parent;
+                }
+            }
+            for (int index : collections) {
+                Object value = accessors.getPropertyValue(entity, index);
+                if (value instanceof Collection && Hibernate.isInitialized(value)) {
+                    for (Object element : Collection.class.cast(value)) {
+                        Integer child = positions.get(element);
+                        if (child != null && child != i && parents[child] == -1) {
+                            parents[child] = i;
                         }
                     }
                 }
             }
         }
-    }
-
-    private static Map<BatchIdentifier, List<Object>> addToBatch(BatchIdentifier batchIdentifier, Object entity, Map<BatchIdentifier, List<Object>> actionBatches) {
-        LOG.trace("");
-        if (actionBatches == null) {
-            actionBatches = new HashMap<>();
-        }
-        List<Object> entities = actionBatches.get(batchIdentifier);
-        if (entities == null) {
-            entities = new LinkedList<>();
-            actionBatches.put(batchIdentifier, entities);
+        int[] depths = new int[entities.size()];
+        Arrays.fill(depths, -1);
+        int[] path = new int[entities.size()];
+        for (int i = 0; i < entities.size(); i++) {
+            int length = 0;
+            int current = i;
+            while (current != -1 && depths[current] < 0) {
+                depths[current] = -2;
+                path[length++] = current;
+                current = parents[current];
+                if (current != -1 && depths[current] == -2) {
+                    current = -1;
+                }
+            }
+            int depth = current == -1 ? -1 : depths[current];
+            for (int j = length - 1; j >= 0; j--) {
+                depths[path[j]] = ++depth;
+            }
         }
-        entities.add(entity);
-        return actionBatches;
+        return depths;
     }
 
-    private static List<List<Object>> sortBatch(List<Object> entities, SharedSessionContractImplementor session) {
-        LOG.trace("");
-        List<Object> first = new ArrayList<>();
-        List<Object> second = new ArrayList<>();
-        for (Object entity : entities) {
-            EntityPersister entityPersister = session.getEntityPersister(null, entity);
-            Object[] propertyValues = entityPersister.getPropertyValuesToInsert(entity, Collections.emptyMap(), session);
-            ClassMetadata classMetadata = entityPersister.getClassMetadata();
-            boolean added = false;
-
-            if (classMetadata != null) {
-                Type[] propertyTypes = classMetadata.getPropertyTypes();
+    private static EntityPersister getEntityPersister(SessionFactoryImplementor factory, Object entity) {
+        String entityName = entity instanceof HibernateProxy
+        ? HibernateProxy.class.cast(entity).getHibernateLazyInitializer().getEntityName()
+        : entity.getClass().getName();
+        return factory.getMetamodel().entityPersister(entityName);
+    }
 
-                for (int i = 0; i < propertyValues.length; i++) {
-                    Object value = propertyValues[i];
-                    Type type = propertyTypes[i];
+    public static int[] getSelfReferences(EntityPersister persister, SessionFactoryImplementor factory) {
+        return getSelfReferences(persister, factory, false);
+    }
 
-                    if (type.isEntityType() && value != null) {
-                        second.add(entity);
-                        added = true;
-                        break;
-                    } else if (type.isCollectionType() && value != null && !Collection.class.cast(value).isEmpty()) {
-                        first.add(entity);
-                        added = true;
-                        break;
-                    }
+    private static int[] getSelfReferences(EntityPersister persister, SessionFactoryImplementor factory, boolean collections) {
+        Type[] propertyTypes = persister.getPropertyTypes();
+        int[] indexes = new int[propertyTypes.length];
+        int count = 0;
+        for (int i = 0; i < propertyTypes.length; i++) {
+            Type type = propertyTypes[i];
+            String entityName = null;
+            if (!collections && type.isEntityType()) {
+                entityName = EntityType.class.cast(type).getAssociatedEntityName();
+            } else if (collections && type.isCollectionType()) {
+                CollectionType collectionType = CollectionType.class.cast(type);
+                if (collectionType.getElementType(factory).isEntityType()) {
+                    entityName = collectionType.getAssociatedEntityName(factory);
                 }
             }
-            if (!added) {
-                first.add(entity);
+            if (
+                    entityName != null
+                    && persister.getRootEntityName().equals(factory.getMetamodel().entityPersister(entityName).getRootEntityName())
+            ) {
+                indexes[count++] = i;
             }
         }
-        List<List<Object>> sorted = new ArrayList<>();
-        sorted.add(first);
-        sorted.add(second);
-        return sorted;
+        return Arrays.copyOf(indexes, count);
     }
 
-    private static class BatchIdentifier {
+    private static class ChunkAction extends RecursiveAction {
 
-        private final String entityName;
-        private final String rootEntityName;
+        private static final long serialVersionUID = -2047117209262917235L;
 
-        private Set<String> parentEntityNames = new HashSet<>();
-        private Set<String> childEntityNames = new HashSet<>();
+        private final int from;
+        private final int to;
+        private final transient IntConsumer task;
 
-        public BatchIdentifier(String entityName, String rootEntityName) {
+        private ChunkAction(int from, int to, IntConsumer task) {
             super();
-            this.entityName = entityName;
-            this.rootEntityName = rootEntityName;
+            this.from = from;
+            this.to = to;
+            this.task = task;
         }
 
         @Override
-        public boolean equals(Object o) {
-            if (this == o) {
-                return true;
-            }
-            if (!(o instanceof BatchIdentifier)) {
-                return false;
+        protected void compute() {
+            if (to - from == 1) {
+                task.accept(from);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkAction(from, middle, task), new ChunkAction(middle, to, task));
             }
-            BatchIdentifier that = (BatchIdentifier) o;
-            return Objects.equals(entityName, that.entityName);
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(entityName);
-        }
-
-        @Override
-        public String toString() {
-            StringBuilder builder = new StringBuilder();
-            builder.append("BatchIdentifier [entityName=");
-            builder.append(entityName);
-            builder.append(", rootEntityName=");
-            builder.append(rootEntityName);
-            builder.append("]");
-            return builder.toString();
-        }
-
-        public String getEntityName() {
-            return entityName;
-        }
-
-        public String getRootEntityName() {
-            return rootEntityName;
-        }
-
-        public Set<String> getParentEntityNames() {
-            return parentEntityNames;
-        }
-
-        public Set<String> getChildEntityNames() {
-            return childEntityNames;
-        }
-
-        public boolean hasAnyParentEntityNames(BatchIdentifier batchIdentifier) {
-            return parentEntityNames.contains(batchIdentifier.getEntityName()) || parentEntityNames.contains(batchIdentifier.getRootEntityName());
-        }
-
-        public boolean hasAnyChildEntityNames(BatchIdentifier batchIdentifier) {
-            return childEntityNames.contains(batchIdentifier.getEntityName());
         }
 
     }
@@ -0,0 +1,75 @@
+package com.exqudens.hibernate.util;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.hibernate.action.internal.DelayedPostInsertIdentifier;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exqudens.hibernate.persister.PropertyAccessors;
+
+/**
+ * Pending self-referencing entities are ready once their parents have a real
+ * identifier, so a tree is inserted level by level.
+ */
+public class TreeLevels {
+
+    private static final Logger LOG;
+
+    static {
+        LOG = LoggerFactory.getLogger(TreeLevels.class);
+        LOG.trace("");
+    }
+
+    private final SharedSessionContractImplementor session;
+    private final Map<Class<?>, int[]> references;
+
+    public TreeLevels(SharedSessionContractImplementor session) {
+        super();
+        LOG.trace("");
+        this.session = session;
+        this.references = new IdentityHashMap<>();
+    }
+
+    public boolean isReady(Object entity) {
+        EntityPersister persister = session.getEntityPersister(null, entity);
+        int[] indexes = references.computeIfAbsent(
+                entity.getClass(),
+                k -> SortUtils.getSelfReferences(persister, session.getFactory())
+        );
+        PropertyAccessors accessors = PropertyAccessors.of(persister);
+        for (int index : indexes) {
+            Object parent = accessors.getPropertyValue(entity, index);
+            if (parent != null && parent != entity && !isInserted(parent)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isInserted(Object entity) {
+        if (entity instanceof HibernateProxy) {
+            return true;
+        }
+        EntityEntry entry = session.getPersistenceContext().getEntry(entity);
+        if (entry != null) {
+            return entry.getId() != null && !(entry.getId() instanceof DelayedPostInsertIdentifier);
+        }
+        return session.getEntityPersister(null, entity).getIdentifier(entity, session) != null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("TreeLevels [classes=");
+        builder.append(references.size());
+        builder.append("]");
+        return builder.toString();
+    }
+
+}
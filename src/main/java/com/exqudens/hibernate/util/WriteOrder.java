@@ -0,0 +1,217 @@
+package com.exqudens.hibernate.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.mapping.Collection;
+import org.hibernate.mapping.Component;
+import org.hibernate.mapping.ManyToOne;
+import org.hibernate.mapping.OneToMany;
+import org.hibernate.mapping.OneToOne;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.Property;
+import org.hibernate.mapping.Value;
+import org.hibernate.type.ForeignKeyDirection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parent first order of all mapped entity names, computed once from the
+ * mapping metadata.
+ */
+public class WriteOrder {
+
+    /**
+     * Order without entity names, every rank is {@code -1}.
+     */
+    public static final WriteOrder EMPTY;
+
+    private static final Logger LOG;
+
+    static {
+        LOG = LoggerFactory.getLogger(WriteOrder.class);
+        LOG.trace("");
+        EMPTY = new WriteOrder(Collections.emptyList(), Collections.emptySet(), Collections.emptySet());
+    }
+
+    public static WriteOrder build(Metadata metadata) {
+        LOG.trace("");
+        Map<String, PersistentClass> persistentClasses = new LinkedHashMap<>();
+        for (PersistentClass persistentClass : metadata.getEntityBindings()) {
+            persistentClasses.put(persistentClass.getEntityName(), persistentClass);
+        }
+        List<String> names = new ArrayList<>(persistentClasses.keySet());
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            indexes.put(names.get(i), i);
+        }
+
+        Map<String, Set<String>> children = new HashMap<>();
+        Set<String> selfReferencing = new HashSet<>();
+        for (PersistentClass persistentClass : persistentClasses.values()) {
+            String entityName = persistentClass.getEntityName();
+            Iterator<?> properties = persistentClass.getPropertyClosureIterator();
+            while (properties.hasNext()) {
+                addEdges(entityName, Property.class.cast(properties.next()).getValue(), persistentClasses, children, selfReferencing);
+            }
+        }
+
+        int[] inDegrees = new int[names.size()];
+        for (Set<String> targets : children.values()) {
+            for (String target : targets) {
+                inDegrees[indexes.get(target)]++;
+            }
+        }
+        PriorityQueue<Integer> ready = new PriorityQueue<>();
+        for (int i = 0; i < inDegrees.length; i++) {
+            if (inDegrees[i] == 0) {
+                ready.add(i);
+            }
+        }
+        List<String> ordered = new ArrayList<>(names.size());
+        while (!ready.isEmpty()) {
+            String name = names.get(ready.poll());
+            ordered.add(name);
+            for (String child : children.getOrDefault(name, Collections.emptySet())) {
+                int index = indexes.get(child);
+                if (--inDegrees[index] == 0) {
+                    ready.add(index);
+                }
+            }
+        }
+        Set<String> cyclic = new LinkedHashSet<>();
+        for (int i = 0; i < inDegrees.length; i++) {
+            if (inDegrees[i] > 0) {
+                cyclic.add(names.get(i));
+                ordered.add(names.get(i));
+            }
+        }
+        if (!cyclic.isEmpty()) {
+            LOG.warn("entity dependency cycle: {}", cyclic);
+        }
+        WriteOrder writeOrder = new WriteOrder(ordered, selfReferencing, cyclic);
+        LOG.debug("{}", writeOrder);
+        return writeOrder;
+    }
+
+    private static void addEdges(
+            String entityName,
+            Value value,
+            Map<String, PersistentClass> persistentClasses,
+            Map<String, Set<String>> children,
+            Set<String> selfReferencing
+    ) {
+        if (value instanceof Component) {
+            Iterator<?> properties = Component.class.cast(value).getPropertyIterator();
+            while (properties.hasNext()) {
+                addEdges(entityName, Property.class.cast(properties.next()).getValue(), persistentClasses, children, selfReferencing);
+            }
+        } else if (value instanceof OneToOne) {
+            OneToOne oneToOne = OneToOne.class.cast(value);
+            if (oneToOne.getForeignKeyType() == ForeignKeyDirection.TO_PARENT) {
+                addEdge(entityName, oneToOne.getReferencedEntityName(), persistentClasses, children, selfReferencing);
+            } else {
+                addEdge(oneToOne.getReferencedEntityName(), entityName, persistentClasses, children, selfReferencing);
+            }
+        } else if (value instanceof ManyToOne) {
+            addEdge(ManyToOne.class.cast(value).getReferencedEntityName(), entityName, persistentClasses, children, selfReferencing);
+        } else if (value instanceof Collection) {
+            Value element = Collection.class.cast(value).getElement();
+            if (element instanceof OneToMany) {
+                addEdge(entityName, OneToMany.class.cast(element).getReferencedEntityName(), persistentClasses, children, selfReferencing);
+            }
+        }
+    }
+
+    private static void addEdge(
+            String parent,
+            String child,
+            Map<String, PersistentClass> persistentClasses,
+            Map<String, Set<String>> children,
+            Set<String> selfReferencing
+    ) {
+        PersistentClass parentClass = persistentClasses.get(parent);
+        if (parentClass == null || !persistentClasses.containsKey(child)) {
+            return;
+        }
+        List<String> parents = new ArrayList<>();
+        parents.add(parent);
+        Iterator<?> subclasses = parentClass.getSubclassIterator();
+        while (subclasses.hasNext()) {
+            parents.add(PersistentClass.class.cast(subclasses.next()).getEntityName());
+        }
+        for (String name : parents) {
+            if (name.equals(child)) {
+                selfReferencing.add(child);
+            } else {
+                children.computeIfAbsent(name, k -> new LinkedHashSet<>()).add(child);
+            }
+        }
+    }
+
+    private final List<String> entityNames;
+    private final Map<String, Integer> ranks;
+    private final Set<String> selfReferencing;
+    private final Set<String> cyclic;
+
+    private WriteOrder(List<String> entityNames, Set<String> selfReferencing, Set<String> cyclic) {
+        super();
+        LOG.trace("");
+        this.entityNames = Collections.unmodifiableList(entityNames);
+        this.ranks = new HashMap<>();
+        for (int i = 0; i < entityNames.size(); i++) {
+            ranks.put(entityNames.get(i), i);
+        }
+        this.selfReferencing = Collections.unmodifiableSet(selfReferencing);
+        this.cyclic = Collections.unmodifiableSet(cyclic);
+    }
+
+    public List<String> getEntityNames() {
+        return entityNames;
+    }
+
+    public int size() {
+        return entityNames.size();
+    }
+
+    /**
+     * Position of the entity name in parent first order or -1 when the
+     * name is not mapped.
+     */
+    public int getRank(String entityName) {
+        Integer rank = ranks.get(entityName);
+        return rank != null ? rank : -1;
+    }
+
+    public boolean isSelfReferencing(String entityName) {
+        return selfReferencing.contains(entityName);
+    }
+
+    public Set<String> getCyclicEntityNames() {
+        return cyclic;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("WriteOrder [entityNames=");
+        builder.append(entityNames);
+        builder.append(", selfReferencing=");
+        builder.append(selfReferencing);
+        builder.append(", cyclic=");
+        builder.append(cyclic);
+        builder.append("]");
+        return builder.toString();
+    }
+
+}
@@ -1,7 +1,16 @@
 package com.exqudens.hibernate.test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -11,11 +20,15 @@ import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
 
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.exqudens.hibernate.cfg.Settings;
+import com.exqudens.hibernate.persister.SingleTableEntityPersisterImpl;
+import com.exqudens.hibernate.repository.HibernateRepository;
 import com.exqudens.hibernate.test.model.a.Item;
 import com.exqudens.hibernate.test.model.a.Order;
 import com.exqudens.hibernate.test.model.a.User;
@@ -76,7 +89,7 @@ public class TestADelete {
             items.get(0).setParent(items.get(1));
             items.get(2).setParent(items.get(1));*/
 
-            emf = createEntityManagerFactory(DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS);
+            emf = createEntityManagerFactory(new HashMap<>(), DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS);
 
             em = emf.createEntityManager();
             em.persist(users.get(0));
@@ -115,6 +128,193 @@ public class TestADelete {
         }
     }
 
+    @Test
+    public void testDeleteByIds() {
+        LOG.trace("");
+        EntityManagerFactory emf = null;
+        EntityManager em = null;
+        try {
+            List<User> users = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                users.add(new User(null, null, "email_" + i, new ArrayList<>()));
+            }
+
+            emf = createEntityManagerFactory(new HashMap<>(), DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS);
+
+            em = emf.createEntityManager();
+            new HibernateRepository<>(User.class, Long.class, em).save(users);
+            em.close();
+
+            // a contiguous run served by a range plus scattered singles
+            long[] ids = users.stream().filter(u -> u.getId() % 3 != 1 || users.indexOf(u) < 100).mapToLong(User::getId).toArray();
+
+            em = emf.createEntityManager();
+            new HibernateRepository<>(User.class, Long.class, em).deleteByIds(ids);
+            em.close();
+
+            em = emf.createEntityManager();
+            for (User user : users) {
+                boolean deleted = Arrays.stream(ids).anyMatch(id -> id == user.getId());
+                assertEquals(deleted, em.find(User.class, user.getId()) == null);
+            }
+            em.close();
+
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            if (emf != null && emf.isOpen()) {
+                emf.close();
+            }
+        }
+    }
+
+    @Test
+    public void testDeleteByIdsCascade() {
+        LOG.trace("");
+        EntityManagerFactory emf = null;
+        EntityManager em = null;
+        try {
+            User user = new User(null, null, "email_cascade", new ArrayList<>());
+            for (int o = 0; o < 3; o++) {
+                Order order = new Order(null, null, "orderNumber_" + o, user, new ArrayList<>());
+                user.getOrders().add(order);
+                for (int i = 0; i < 3; i++) {
+                    order.getItems().add(new Item(null, null, "description_" + i, order, null, new ArrayList<>()));
+                }
+            }
+
+            emf = createEntityManagerFactory(new HashMap<>(), DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS);
+
+            em = emf.createEntityManager();
+            new HibernateRepository<>(User.class, Long.class, em).save(Collections.singletonList(user));
+            em.close();
+
+            em = emf.createEntityManager();
+            new HibernateRepository<>(User.class, Long.class, em).deleteByIds(Collections.singletonList(user.getId()));
+            em.close();
+
+            em = emf.createEntityManager();
+            assertNull(em.find(User.class, user.getId()));
+            for (Order order : user.getOrders()) {
+                assertNull(em.find(Order.class, order.getId()));
+                for (Item item : order.getItems()) {
+                    assertNull(em.find(Item.class, item.getId()));
+                }
+            }
+            em.close();
+
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            if (emf != null && emf.isOpen()) {
+                emf.close();
+            }
+        }
+    }
+
+    @Test
+    public void testBulkDeleteRetry() {
+        LOG.trace("");
+        EntityManagerFactory emf = null;
+        EntityManager em = null;
+        Connection locker = null;
+        Thread unlocker = null;
+        try {
+            List<User> users = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                users.add(new User(null, null, "email_retry_" + i, new ArrayList<>()));
+            }
+
+            Map<String, Object> properties = new HashMap<>();
+            properties.put(Settings.BULK_DELETE_RETRIES, 3);
+            emf = createEntityManagerFactory(properties, DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS);
+
+            em = emf.createEntityManager();
+            new HibernateRepository<>(User.class, Long.class, em).save(users);
+            em.close();
+
+            // a second connection holds a row lock past the first lock wait
+            // timeout, so the first attempt fails and a retry succeeds
+            locker = createDataSource(DS_PREFIX, DS_IGNORE_KEYS).getConnection();
+            locker.setAutoCommit(false);
+            try (PreparedStatement ps = locker.prepareStatement("select `user_id` from `user` where `user_id` = ? for update")) {
+                ps.setLong(1, users.get(users.size() - 1).getId());
+                try (ResultSet rs = ps.executeQuery()) {
+                    assertTrue(rs.next());
+                }
+            }
+            Connection connection = locker;
+            unlocker = new Thread(() -> {
+                try {
+                    Thread.sleep(1500);
+                    connection.commit();
+                } catch (Exception e) {
+                    LOG.error(e.getMessage(), e);
+                }
+            });
+
+            em = emf.createEntityManager();
+            em.getTransaction().begin();
+            em.createNativeQuery("set session innodb_lock_wait_timeout = 1").executeUpdate();
+            for (User user : users) {
+                em.remove(em.find(User.class, user.getId()));
+            }
+            unlocker.start();
+            em.flush();
+            em.getTransaction().commit();
+            em.close();
+
+            em = emf.createEntityManager();
+            for (User user : users) {
+                assertNull(em.find(User.class, user.getId()));
+            }
+            em.close();
+
+            SingleTableEntityPersisterImpl persister = SingleTableEntityPersisterImpl.class.cast(
+                    emf.unwrap(SessionFactoryImplementor.class).getMetamodel().entityPersister(User.class)
+            );
+            assertTrue(persister.getBulkDeleteRetryCount() > 0);
+
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            try {
+                if (unlocker != null) {
+                    unlocker.join();
+                }
+                if (locker != null) {
+                    locker.close();
+                }
+            } catch (Exception e) {
+                LOG.error(e.getMessage(), e);
+            }
+            if (emf != null && emf.isOpen()) {
+                emf.close();
+            }
+        }
+    }
+
     private void sortPrint(EntityManager em) {
         SharedSessionContractImplementor session = SharedSessionContractImplementor.class.cast(em);
         List<Object> entries = Arrays
@@ -135,7 +335,24 @@ public class TestADelete {
         }
     }
 
+    private DataSource createDataSource(String dataSourcePrefix, String... dataSourceIgnoreKeys) {
+        LOG.trace("");
+        try {
+            Map<String, Object> configMap = ConfigGroovyUtils.toMap(ClassPathUtils.toString("config-test.groovy"));
+            return DataSourceUtils.createDataSource(
+                    ConfigGroovyUtils.retrieveProperties(configMap, dataSourcePrefix, dataSourceIgnoreKeys)
+            );
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        }
+    }
+
     private EntityManagerFactory createEntityManagerFactory(
+            Map<String, Object> properties,
             String dataSourcePrefix,
             String jpaPrefix,
             String... dataSourceIgnoreKeys
@@ -152,10 +369,13 @@ public class TestADelete {
             Map<String, DataSource> dataSourceMap = new ConcurrentHashMap<>();
             dataSourceMap.put("any", dataSource);
 
+            Map<String, Object> jpaProperties = ConfigGroovyUtils.retrieveProperties(configMap, jpaPrefix);
+            jpaProperties.putAll(properties);
+
             return EntityManagerFactoryUtils
             .createEntityManagerFactory(
                     dataSourceMap,
-                    ConfigGroovyUtils.retrieveProperties(configMap, jpaPrefix),
+                    jpaProperties,
                     User.class,
                     Order.class,
                     Item.class
@@ -0,0 +1,384 @@
+package com.exqudens.hibernate.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.hibernate.Session;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exqudens.hibernate.cfg.Settings;
+import com.exqudens.hibernate.repository.HibernateRepository;
+import com.exqudens.hibernate.test.model.a.Item;
+import com.exqudens.hibernate.test.model.a.Order;
+import com.exqudens.hibernate.test.model.a.User;
+import com.exqudens.hibernate.test.util.ClassPathUtils;
+import com.exqudens.hibernate.test.util.ConfigGroovyUtils;
+import com.exqudens.hibernate.test.util.DataSourceUtils;
+import com.exqudens.hibernate.util.EntityManagerFactoryUtils;
+
+public class TestAFind {
+
+    private static final Logger LOG;
+    private static final String DS_PREFIX;
+    private static final String JPA_PREFIX;
+    private static final String[] DS_IGNORE_KEYS;
+
+    static {
+        LOG = LoggerFactory.getLogger(TestAFind.class);
+        LOG.trace("");
+        DS_PREFIX = "dataSources.exqudensHibernateDataSource.";
+        JPA_PREFIX = "jpaProviders.hibernateJpaProvider.properties.";
+        DS_IGNORE_KEYS = new String[] {"host", "port", "dbName", "jdbcUrlParams"};
+    }
+
+    public TestAFind() {
+        super();
+        LOG.trace("");
+    }
+
+    @Test
+    public void testStreamAll() {
+        LOG.trace("");
+        EntityManagerFactory emf = null;
+        EntityManager em = null;
+        try {
+            List<User> users = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                User user = new User(null, null, "email_" + i, new ArrayList<>());
+                user.getOrders().add(new Order(null, null, "orderNumber_" + i + "_1", user, new ArrayList<>()));
+                user.getOrders().add(new Order(null, null, "orderNumber_" + i + "_2", user, new ArrayList<>()));
+                users.add(user);
+            }
+
+            emf = createEntityManagerFactory(new HashMap<>(), DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS);
+
+            em = emf.createEntityManager();
+            new HibernateRepository<>(User.class, Long.class, em).save(users);
+            em.close();
+
+            // eager orders: read in pages of the session batch size
+            em = emf.createEntityManager();
+            em.unwrap(Session.class).setJdbcBatchSize(3);
+            PersistenceContext persistenceContext = em.unwrap(SessionImplementor.class).getPersistenceContext();
+            Map<?, ?> entitiesByKey = persistenceContext.getEntitiesByKey();
+            List<Long> ids = new ArrayList<>();
+            try (Stream<User> stream = new HibernateRepository<>(User.class, Long.class, em).streamAll()) {
+                stream.forEach(u -> {
+                    ids.add(u.getId());
+                    assertEquals(2, u.getOrders().size());
+                    assertTrue(entitiesByKey.values().stream().filter(User.class::isInstance).count() <= 3);
+                });
+            }
+            em.close();
+
+            for (int i = 1; i < ids.size(); i++) {
+                assertTrue(ids.get(i - 1) < ids.get(i));
+            }
+            for (User user : users) {
+                assertTrue(ids.contains(user.getId()));
+            }
+
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            if (emf != null && emf.isOpen()) {
+                emf.close();
+            }
+        }
+    }
+
+    @Test
+    public void testFindPages() {
+        LOG.trace("");
+        EntityManagerFactory emf = null;
+        EntityManager em = null;
+        try {
+            List<User> users = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                users.add(new User(null, null, "email_" + i, new ArrayList<>()));
+            }
+
+            emf = createEntityManagerFactory(new HashMap<>(), DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS);
+
+            em = emf.createEntityManager();
+            new HibernateRepository<>(User.class, Long.class, em).save(users);
+            em.close();
+
+            em = emf.createEntityManager();
+            List<Long> ids = new ArrayList<>();
+            Iterator<List<User>> pages = new HibernateRepository<>(User.class, Long.class, em).findPages(3);
+            List<User> previous = Collections.emptyList();
+            while (pages.hasNext()) {
+                List<User> page = pages.next();
+                assertTrue(page.size() <= 3);
+                for (User user : previous) {
+                    assertFalse(em.contains(user));
+                }
+                for (User user : page) {
+                    assertTrue(em.contains(user));
+                    ids.add(user.getId());
+                }
+                previous = page;
+            }
+            em.close();
+
+            for (int i = 1; i < ids.size(); i++) {
+                assertTrue(ids.get(i - 1) < ids.get(i));
+            }
+            for (User user : users) {
+                assertTrue(ids.contains(user.getId()));
+            }
+
+            em = emf.createEntityManager();
+            List<User> page = new HibernateRepository<>(User.class, Long.class, em).findPage(users.get(0).getId(), 3);
+            em.close();
+
+            assertEquals(3, page.size());
+            assertEquals(users.get(1).getId(), page.get(0).getId());
+
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            if (emf != null && emf.isOpen()) {
+                emf.close();
+            }
+        }
+    }
+
+    @Test
+    public void testFindAllRequestOrder() {
+        LOG.trace("");
+        EntityManagerFactory emf = null;
+        EntityManager em = null;
+        try {
+            List<User> users = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                users.add(new User(null, null, "email_" + i, new ArrayList<>()));
+            }
+
+            emf = createEntityManagerFactory(new HashMap<>(), DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS);
+
+            em = emf.createEntityManager();
+            new HibernateRepository<>(User.class, Long.class, em).save(users);
+            em.close();
+
+            // a contiguous run served by a range plus scattered singles
+            List<Long> ids = new ArrayList<>();
+            for (int i = users.size() - 1; i >= 0; i--) {
+                if (i < 100 || i % 3 == 0) {
+                    ids.add(users.get(i).getId());
+                }
+            }
+
+            em = emf.createEntityManager();
+            List<User> found = new HibernateRepository<>(User.class, Long.class, em).findAll(ids);
+            em.close();
+
+            assertEquals(ids.size(), found.size());
+            for (int i = 0; i < ids.size(); i++) {
+                assertEquals(ids.get(i), found.get(i).getId());
+            }
+
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            if (emf != null && emf.isOpen()) {
+                emf.close();
+            }
+        }
+    }
+
+    @Test
+    public void testFindAllLongIds() {
+        LOG.trace("");
+        EntityManagerFactory emf = null;
+        EntityManager em = null;
+        try {
+            List<User> users = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                users.add(new User(null, null, "email_" + i, new ArrayList<>()));
+            }
+
+            emf = createEntityManagerFactory(new HashMap<>(), DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS);
+
+            em = emf.createEntityManager();
+            new HibernateRepository<>(User.class, Long.class, em).save(users);
+            em.close();
+
+            // a contiguous run served by a range plus scattered singles
+            long[] ids = users.stream().filter(u -> u.getId() % 3 != 1 || users.indexOf(u) < 100).mapToLong(User::getId).toArray();
+
+            em = emf.createEntityManager();
+            List<User> found = new HibernateRepository<>(User.class, Long.class, em).findAll(ids);
+            em.close();
+
+            assertEquals(ids.length, found.size());
+            for (int i = 0; i < ids.length; i++) {
+                assertEquals(ids[i], found.get(i).getId().longValue());
+            }
+
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            if (emf != null && emf.isOpen()) {
+                emf.close();
+            }
+        }
+    }
+
+    @Test
+    public void testFindAllParallel() {
+        LOG.trace("");
+        EntityManagerFactory emf = null;
+        EntityManager em = null;
+        try {
+            List<User> users = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                User user = new User(null, null, "email_" + i, new ArrayList<>());
+                user.getOrders().add(new Order(null, null, "orderNumber_" + i, user, new ArrayList<>()));
+                users.add(user);
+            }
+
+            Map<String, Object> properties = new HashMap<>();
+            properties.put(Settings.FIND_ALL_PARALLELISM, 4);
+            emf = createEntityManagerFactory(properties, DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS);
+
+            em = emf.createEntityManager();
+            new HibernateRepository<>(User.class, Long.class, em).save(users);
+            em.close();
+
+            List<Long> ids = new ArrayList<>();
+            for (int i = users.size() - 1; i >= 0; i--) {
+                if (i < 100 || i % 3 == 0) {
+                    ids.add(users.get(i).getId());
+                }
+            }
+
+            // chunks run on the executor, the result is managed by the calling session
+            em = emf.createEntityManager();
+            User known = em.find(User.class, ids.get(0));
+            em.unwrap(Session.class).disconnect();
+            List<User> found = new HibernateRepository<>(User.class, Long.class, em).findAll(ids);
+            assertEquals(ids.size(), found.size());
+            assertSame(known, found.get(0));
+            for (int i = 0; i < ids.size(); i++) {
+                assertEquals(ids.get(i), found.get(i).getId());
+                assertTrue(em.contains(found.get(i)));
+                assertEquals(1, found.get(i).getOrders().size());
+            }
+            em.close();
+
+            // a session holding its connection runs the chunks itself
+            em = emf.createEntityManager();
+            em.getTransaction().begin();
+            em.find(User.class, ids.get(0));
+            found = new HibernateRepository<>(User.class, Long.class, em).findAll(ids);
+            em.getTransaction().commit();
+            assertEquals(ids.size(), found.size());
+            for (User user : found) {
+                assertTrue(em.contains(user));
+            }
+            em.close();
+
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            if (emf != null && emf.isOpen()) {
+                emf.close();
+            }
+        }
+    }
+
+    private EntityManagerFactory createEntityManagerFactory(
+            Map<String, Object> properties,
+            String dataSourcePrefix,
+            String jpaPrefix,
+            String... dataSourceIgnoreKeys
+    ) {
+        LOG.trace("");
+        try {
+            Map<String, Object> configMap = ConfigGroovyUtils.toMap(ClassPathUtils.toString("config-test.groovy"));
+
+            DataSource dataSource = DataSourceUtils
+            .createDataSource(
+                ConfigGroovyUtils.retrieveProperties(configMap, dataSourcePrefix, dataSourceIgnoreKeys)
+            );
+
+            Map<String, DataSource> dataSourceMap = new ConcurrentHashMap<>();
+            dataSourceMap.put("any", dataSource);
+
+            Map<String, Object> jpaProperties = ConfigGroovyUtils.retrieveProperties(configMap, jpaPrefix);
+            jpaProperties.putAll(properties);
+
+            return EntityManagerFactoryUtils
+            .createEntityManagerFactory(
+                    dataSourceMap,
+                    jpaProperties,
+                    User.class,
+                    Order.class,
+                    Item.class
+            );
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        }
+    }
+
+}
@@ -1,6 +1,15 @@
 package com.exqudens.hibernate.test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -9,10 +18,20 @@ import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
 
+import org.hibernate.FlushMode;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.exqudens.hibernate.cfg.Settings;
+import com.exqudens.hibernate.integrator.IntegratorImpl;
+import com.exqudens.hibernate.jdbc.ServerVariables;
+import com.exqudens.hibernate.listener.SessionEventListenerImpl;
 import com.exqudens.hibernate.test.model.a.Item;
 import com.exqudens.hibernate.test.model.a.Order;
 import com.exqudens.hibernate.test.model.a.User;
@@ -72,7 +91,7 @@ public class TestAInsert {
             items.get(0).setParent(items.get(1));
             items.get(2).setParent(items.get(1));*/
 
-            emf = createEntityManagerFactory(DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS);
+            emf = createEntityManagerFactory(new HashMap<>(), DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS);
 
             em = emf.createEntityManager();
             em.persist(users.get(0));
@@ -107,7 +126,205 @@ public class TestAInsert {
         }
     }
 
+    @Test
+    public void testSessionListener() {
+        LOG.trace("");
+        EntityManagerFactory emf = null;
+        EntityManager em1 = null;
+        EntityManager em2 = null;
+        try {
+            emf = createEntityManagerFactory(new HashMap<>(), DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS);
+            em1 = emf.createEntityManager();
+            em2 = emf.createEntityManager();
+            SessionImplementor session1 = em1.unwrap(SessionImplementor.class);
+            SessionImplementor session2 = em2.unwrap(SessionImplementor.class);
+
+            assertNull(SessionEventListenerImpl.find(session1));
+
+            session1.setHibernateFlushMode(FlushMode.MANUAL);
+            SessionEventListenerImpl listener1 = SessionEventListenerImpl.get(session1);
+            assertEquals(FlushMode.MANUAL, session1.getHibernateFlushMode());
+            assertSame(listener1, SessionEventListenerImpl.get(session1));
+            assertSame(listener1, SessionEventListenerImpl.find(session1));
+            assertNotSame(listener1, SessionEventListenerImpl.get(session2));
+            assertFalse(em1.getProperties().containsValue(listener1));
+
+            User user = new User(null, null, "email_listener", new ArrayList<>());
+            em1.persist(user);
+            em1.getTransaction().begin();
+            em1.flush();
+            em1.getTransaction().commit();
+            assertTrue(listener1.getUpdates().isEmpty());
+            assertSame(listener1, SessionEventListenerImpl.get(session1));
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } finally {
+            if (em1 != null && em1.isOpen()) {
+                em1.close();
+            }
+            if (em2 != null && em2.isOpen()) {
+                em2.close();
+            }
+            if (emf != null && emf.isOpen()) {
+                //emf.close();
+            }
+        }
+    }
+
+    @Test
+    public void testStatelessSession() {
+        LOG.trace("");
+        EntityManagerFactory emf = null;
+        StatelessSession session = null;
+        EntityManager em = null;
+        try {
+            User user = new User(null, null, "email_stateless", new ArrayList<>());
+            Order order = new Order(null, null, "orderNumber_stateless", user, new ArrayList<>());
+
+            emf = createEntityManagerFactory(new HashMap<>(), DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS);
+            session = emf.unwrap(SessionFactory.class).openStatelessSession();
+            session.getTransaction().begin();
+            session.insert(user);
+            session.insert(order);
+            session.getTransaction().commit();
+            assertNull(SessionEventListenerImpl.find(SharedSessionContractImplementor.class.cast(session)));
+            session.close();
+
+            assertNotNull(user.getId());
+            assertNotNull(order.getId());
+            em = emf.createEntityManager();
+            Order found = em.find(Order.class, order.getId());
+            assertEquals(order.getOrderNumber(), found.getOrderNumber());
+            assertEquals(user.getId(), found.getUser().getId());
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } finally {
+            if (session != null && session.isOpen()) {
+                session.close();
+            }
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            if (emf != null && emf.isOpen()) {
+                //emf.close();
+            }
+        }
+    }
+
+    @Test
+    public void testSelfReferenceDepth() {
+        LOG.trace("");
+        EntityManagerFactory emf = null;
+        EntityManager em = null;
+        try {
+            User user = new User(null, null, "email_depth", new ArrayList<>());
+            Order order = new Order(null, null, "orderNumber_depth", user, new ArrayList<>());
+            user.getOrders().add(order);
+
+            // binary tree five levels deep, children added before their parents
+            List<Item> items = new ArrayList<>();
+            items.add(new Item(null, null, "description_0", order, null, new ArrayList<>()));
+            for (int i = 1; i < 31; i++) {
+                Item parent = items.get((i - 1) / 2);
+                Item item = new Item(null, null, "description_" + i, order, parent, new ArrayList<>());
+                parent.getChildren().add(item);
+                items.add(item);
+            }
+            for (int i = items.size() - 1; i >= 0; i--) {
+                order.getItems().add(items.get(i));
+            }
+
+            emf = createEntityManagerFactory(new HashMap<>(), DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS);
+            em = emf.createEntityManager();
+            em.persist(user);
+            em.getTransaction().begin();
+            em.flush();
+            em.getTransaction().commit();
+
+            SessionEventListenerImpl listener = SessionEventListenerImpl.get(em.unwrap(SessionImplementor.class));
+            assertTrue(listener.getLevels().isEmpty());
+            for (Item item : items) {
+                assertTrue(item.getId() != null);
+                if (item.getParent() != null) {
+                    assertTrue(item.getParent().getId() < item.getId());
+                }
+            }
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            if (emf != null && emf.isOpen()) {
+                //emf.close();
+            }
+        }
+    }
+
+    @Test
+    public void testBlockAllocation() {
+        LOG.trace("");
+        EntityManagerFactory emf = null;
+        EntityManager em = null;
+        try {
+            List<User> users = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                User user = new User(null, null, "email_block_" + i, new ArrayList<>());
+                user.getOrders().add(new Order(null, null, "orderNumber_block_" + i + "_1", user, new ArrayList<>()));
+                user.getOrders().add(new Order(null, null, "orderNumber_block_" + i + "_2", user, new ArrayList<>()));
+                users.add(user);
+            }
+
+            Map<String, Object> properties = new HashMap<>();
+            properties.put(Settings.IDENTITY_BLOCK_ALLOCATION, true);
+            emf = createEntityManagerFactory(properties, DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS);
+
+            em = emf.createEntityManager();
+            for (User user : users) {
+                em.persist(user);
+            }
+            em.getTransaction().begin();
+            em.flush();
+            em.getTransaction().commit();
+            em.close();
+
+            // one multi-row insert per type: the ids are one consecutive range
+            ServerVariables serverVariables = IntegratorImpl.INSTANCE.getServerVariables(emf.unwrap(SessionFactoryImplementor.class));
+            if (serverVariables.isConsecutiveAutoIncrement()) {
+                for (int i = 1; i < users.size(); i++) {
+                    assertEquals(serverVariables.getAutoIncrementIncrement(), users.get(i).getId() - users.get(i - 1).getId());
+                }
+            }
+
+            // every computed id points at the row of its entity
+            em = emf.createEntityManager();
+            for (User user : users) {
+                User found = em.find(User.class, user.getId());
+                assertEquals(user.getEmail(), found.getEmail());
+                assertEquals(user.getOrders().size(), found.getOrders().size());
+                for (Order order : user.getOrders()) {
+                    assertEquals(order.getOrderNumber(), em.find(Order.class, order.getId()).getOrderNumber());
+                }
+            }
+            em.close();
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            if (emf != null && emf.isOpen()) {
+                //emf.close();
+            }
+        }
+    }
+
     private EntityManagerFactory createEntityManagerFactory(
+            Map<String, Object> properties,
             String dataSourcePrefix,
             String jpaPrefix,
             String... dataSourceIgnoreKeys
@@ -124,10 +341,13 @@ public class TestAInsert {
             Map<String, DataSource> dataSourceMap = new ConcurrentHashMap<>();
             dataSourceMap.put("any", dataSource);
 
+            Map<String, Object> jpaProperties = ConfigGroovyUtils.retrieveProperties(configMap, jpaPrefix);
+            jpaProperties.putAll(properties);
+
             return EntityManagerFactoryUtils
             .createEntityManagerFactory(
                     dataSourceMap,
-                    ConfigGroovyUtils.retrieveProperties(configMap, jpaPrefix),
+                    jpaProperties,
                     User.class,
                     Order.class,
                     Item.class
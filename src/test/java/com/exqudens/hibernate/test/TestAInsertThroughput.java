@@ -0,0 +1,190 @@
+package com.exqudens.hibernate.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exqudens.hibernate.test.model.a.Item;
+import com.exqudens.hibernate.test.model.a.Order;
+import com.exqudens.hibernate.test.model.a.User;
+import com.exqudens.hibernate.test.util.ClassPathUtils;
+import com.exqudens.hibernate.test.util.ConfigGroovyUtils;
+import com.exqudens.hibernate.test.util.DataSourceUtils;
+import com.exqudens.hibernate.util.EntityManagerFactoryUtils;
+
+public class TestAInsertThroughput {
+
+    private static final Logger LOG;
+    private static final String DS_PREFIX;
+    private static final String JPA_PREFIX;
+    private static final String[] DS_IGNORE_KEYS;
+    private static final int[] THREADS;
+    private static final int USERS_PER_THREAD;
+    private static final int ORDERS_PER_USER;
+    private static final int ITEMS_PER_ORDER;
+
+    static {
+        LOG = LoggerFactory.getLogger(TestAInsertThroughput.class);
+        LOG.trace("");
+        DS_PREFIX = "dataSources.exqudensHibernateDataSource.";
+        JPA_PREFIX = "jpaProviders.hibernateJpaProvider.properties.";
+        DS_IGNORE_KEYS = new String[] {"host", "port", "dbName", "jdbcUrlParams"};
+        THREADS = new int[] {1, 2, 4, 8};
+        USERS_PER_THREAD = 100;
+        ORDERS_PER_USER = 10;
+        ITEMS_PER_ORDER = 10;
+    }
+
+    public TestAInsertThroughput() {
+        super();
+        LOG.trace("");
+    }
+
+    /**
+     * Opt-in benchmark, runs only with {@code -Dexqudens.benchmark=true}.
+     */
+    @Test
+    public void test() {
+        LOG.trace("");
+        Assume.assumeTrue(Boolean.getBoolean("exqudens.benchmark"));
+        EntityManagerFactory emf = null;
+        ExecutorService executor = null;
+        try {
+            int maxThreads = THREADS[THREADS.length - 1];
+            emf = createEntityManagerFactory(maxThreads, DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS);
+            executor = Executors.newFixedThreadPool(maxThreads);
+
+            // warm up
+            run(emf, executor, 1);
+
+            for (int threads : THREADS) {
+                long start = System.nanoTime();
+                int rows = run(emf, executor, threads);
+                long nanos = System.nanoTime() - start;
+                LOG.info(
+                        "threads: {}, rows: {}, millis: {}, rows/s: {}",
+                        threads,
+                        rows,
+                        TimeUnit.NANOSECONDS.toMillis(nanos),
+                        rows * 1_000_000_000L / Math.max(nanos, 1)
+                );
+            }
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            if (emf != null && emf.isOpen()) {
+                //emf.close();
+            }
+        }
+    }
+
+    private int run(EntityManagerFactory emf, ExecutorService executor, int threads) throws Exception {
+        LOG.trace("");
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> insert(emf)));
+        }
+        int rows = 0;
+        for (Future<Integer> future : futures) {
+            rows += future.get();
+        }
+        return rows;
+    }
+
+    private int insert(EntityManagerFactory emf) {
+        LOG.trace("");
+        EntityManager em = null;
+        try {
+            int rows = 0;
+            em = emf.createEntityManager();
+            for (int u = 0; u < USERS_PER_THREAD; u++) {
+                User user = new User(null, null, "email_" + u, new ArrayList<>());
+                for (int o = 0; o < ORDERS_PER_USER; o++) {
+                    Order order = new Order(null, null, "orderNumber_" + o, user, new ArrayList<>());
+                    for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+                        order.getItems().add(new Item(null, null, "description_" + i, order, null, new ArrayList<>()));
+                        rows++;
+                    }
+                    user.getOrders().add(order);
+                    rows++;
+                }
+                em.persist(user);
+                rows++;
+            }
+            em.getTransaction().begin();
+            em.flush();
+            em.getTransaction().commit();
+            em.clear();
+            return rows;
+        } catch (RuntimeException e) {
+            if (em != null && em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+        }
+    }
+
+    private EntityManagerFactory createEntityManagerFactory(
+            int maximumPoolSize,
+            String dataSourcePrefix,
+            String jpaPrefix,
+            String... dataSourceIgnoreKeys
+    ) {
+        LOG.trace("");
+        try {
+            Map<String, Object> configMap = ConfigGroovyUtils.toMap(ClassPathUtils.toString("config-test.groovy"));
+
+            Map<String, Object> dataSourceProperties = ConfigGroovyUtils.retrieveProperties(
+                    configMap,
+                    dataSourcePrefix,
+                    dataSourceIgnoreKeys
+            );
+            dataSourceProperties.put("maximumPoolSize", maximumPoolSize);
+            DataSource dataSource = DataSourceUtils.createDataSource(dataSourceProperties);
+
+            Map<String, DataSource> dataSourceMap = new ConcurrentHashMap<>();
+            dataSourceMap.put("any", dataSource);
+
+            return EntityManagerFactoryUtils
+            .createEntityManagerFactory(
+                    dataSourceMap,
+                    ConfigGroovyUtils.retrieveProperties(configMap, jpaPrefix),
+                    User.class,
+                    Order.class,
+                    Item.class
+            );
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        }
+    }
+
+}
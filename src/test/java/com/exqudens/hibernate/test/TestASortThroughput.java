@@ -0,0 +1,205 @@
+package com.exqudens.hibernate.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exqudens.hibernate.test.model.a.Item;
+import com.exqudens.hibernate.test.model.a.Order;
+import com.exqudens.hibernate.test.model.a.User;
+import com.exqudens.hibernate.test.util.ClassPathUtils;
+import com.exqudens.hibernate.test.util.ConfigGroovyUtils;
+import com.exqudens.hibernate.test.util.DataSourceUtils;
+import com.exqudens.hibernate.util.EntityManagerFactoryUtils;
+import com.exqudens.hibernate.util.SortUtils;
+
+public class TestASortThroughput {
+
+    private static final Logger LOG;
+    private static final String DS_PREFIX;
+    private static final String JPA_PREFIX;
+    private static final String[] DS_IGNORE_KEYS;
+    private static final int[] SIZES;
+
+    static {
+        LOG = LoggerFactory.getLogger(TestASortThroughput.class);
+        LOG.trace("");
+        DS_PREFIX = "dataSources.exqudensHibernateDataSource.";
+        JPA_PREFIX = "jpaProviders.hibernateJpaProvider.properties.";
+        DS_IGNORE_KEYS = new String[] {"host", "port", "dbName", "jdbcUrlParams"};
+        SIZES = new int[] {10_000, 100_000, 1_000_000};
+    }
+
+    public TestASortThroughput() {
+        super();
+        LOG.trace("");
+    }
+
+    /**
+     * Opt-in benchmark, runs only with {@code -Dexqudens.benchmark=true}.
+     */
+    @Test
+    public void test() {
+        LOG.trace("");
+        Assume.assumeTrue(Boolean.getBoolean("exqudens.benchmark"));
+        EntityManagerFactory emf = null;
+        EntityManager em = null;
+        try {
+            emf = createEntityManagerFactory(DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS);
+            em = emf.createEntityManager();
+            SharedSessionContractImplementor session = em.unwrap(SharedSessionContractImplementor.class);
+
+            for (int size : SIZES) {
+                List<Object> entities = createEntities(size);
+
+                // warm up
+                SortUtils.sort(entities, session, Integer.MAX_VALUE);
+                SortUtils.sort(entities, session, 1);
+
+                long start = System.nanoTime();
+                List<List<Object>> sequential = SortUtils.sort(entities, session, Integer.MAX_VALUE);
+                long sequentialNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                List<List<Object>> parallel = SortUtils.sort(entities, session, 1);
+                long parallelNanos = System.nanoTime() - start;
+
+                assertEquals(sequential.size(), parallel.size());
+                for (int i = 0; i < sequential.size(); i++) {
+                    assertEquals(sequential.get(i).size(), parallel.get(i).size());
+                    for (int j = 0; j < sequential.get(i).size(); j++) {
+                        assertSame(sequential.get(i).get(j), parallel.get(i).get(j));
+                    }
+                }
+
+                assertParentsFirst(parallel);
+
+                LOG.info(
+                        "entities: {}, sequential millis: {}, parallel millis: {}",
+                        size,
+                        TimeUnit.NANOSECONDS.toMillis(sequentialNanos),
+                        TimeUnit.NANOSECONDS.toMillis(parallelNanos)
+                );
+            }
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            if (emf != null && emf.isOpen()) {
+                emf.close();
+            }
+        }
+    }
+
+    private void assertParentsFirst(List<List<Object>> sorted) {
+        Map<Object, Integer> groups = new IdentityHashMap<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            for (Object entity : sorted.get(i)) {
+                groups.put(entity, i);
+            }
+        }
+        for (Map.Entry<Object, Integer> entry : groups.entrySet()) {
+            Object parent = null;
+            Object parent2 = null;
+            if (entry.getKey() instanceof Order) {
+                parent = Order.class.cast(entry.getKey()).getUser();
+            } else if (entry.getKey() instanceof Item) {
+                parent = Item.class.cast(entry.getKey()).getOrder();
+                parent2 = Item.class.cast(entry.getKey()).getParent();
+            }
+            if (parent != null) {
+                assertTrue(groups.get(parent) < entry.getValue());
+            }
+            if (parent2 != null) {
+                assertTrue(groups.get(parent2) < entry.getValue());
+            }
+        }
+    }
+
+    private List<Object> createEntities(int size) {
+        List<Object> entities = new ArrayList<>(size);
+        long id = 1;
+        while (entities.size() < size) {
+            User user = new User(id++, null, "email_" + id, new ArrayList<>());
+            entities.add(user);
+            for (int o = 0; o < 10 && entities.size() < size; o++) {
+                Order order = new Order(id++, null, "orderNumber_" + o, user, new ArrayList<>());
+                user.getOrders().add(order);
+                entities.add(order);
+                Item parent = null;
+                for (int i = 0; i < 10 && entities.size() < size; i++) {
+                    Item item = new Item(id++, null, "description_" + i, order, parent, new ArrayList<>());
+                    if (parent != null) {
+                        parent.getChildren().add(item);
+                    }
+                    order.getItems().add(item);
+                    entities.add(item);
+                    parent = i % 3 == 2 ? null : item;
+                }
+            }
+        }
+        // flush sets arrive in persistence context order, not grouped by type
+        Collections.shuffle(entities, new Random(size));
+        return entities;
+    }
+
+    private EntityManagerFactory createEntityManagerFactory(
+            String dataSourcePrefix,
+            String jpaPrefix,
+            String... dataSourceIgnoreKeys
+    ) {
+        LOG.trace("");
+        try {
+            Map<String, Object> configMap = ConfigGroovyUtils.toMap(ClassPathUtils.toString("config-test.groovy"));
+
+            DataSource dataSource = DataSourceUtils
+            .createDataSource(
+                ConfigGroovyUtils.retrieveProperties(configMap, dataSourcePrefix, dataSourceIgnoreKeys)
+            );
+
+            Map<String, DataSource> dataSourceMap = new ConcurrentHashMap<>();
+            dataSourceMap.put("any", dataSource);
+
+            return EntityManagerFactoryUtils
+            .createEntityManagerFactory(
+                    dataSourceMap,
+                    ConfigGroovyUtils.retrieveProperties(configMap, jpaPrefix),
+                    User.class,
+                    Order.class,
+                    Item.class
+            );
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        }
+    }
+
+}
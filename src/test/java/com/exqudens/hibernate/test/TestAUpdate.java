@@ -0,0 +1,225 @@
+package com.exqudens.hibernate.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.FlushModeType;
+import javax.sql.DataSource;
+
+import org.hibernate.StaleObjectStateException;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PreUpdateEventListener;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exqudens.hibernate.cfg.Settings;
+import com.exqudens.hibernate.repository.HibernateRepository;
+import com.exqudens.hibernate.test.model.a.Item;
+import com.exqudens.hibernate.test.model.a.Order;
+import com.exqudens.hibernate.test.model.a.User;
+import com.exqudens.hibernate.test.util.ClassPathUtils;
+import com.exqudens.hibernate.test.util.ConfigGroovyUtils;
+import com.exqudens.hibernate.test.util.DataSourceUtils;
+import com.exqudens.hibernate.util.EntityManagerFactoryUtils;
+
+public class TestAUpdate {
+
+    private static final Logger LOG;
+    private static final String DS_PREFIX;
+    private static final String JPA_PREFIX;
+    private static final String[] DS_IGNORE_KEYS;
+
+    static {
+        LOG = LoggerFactory.getLogger(TestAUpdate.class);
+        LOG.trace("");
+        DS_PREFIX = "dataSources.exqudensHibernateDataSource.";
+        JPA_PREFIX = "jpaProviders.hibernateJpaProvider.properties.";
+        DS_IGNORE_KEYS = new String[] {"host", "port", "dbName", "jdbcUrlParams"};
+    }
+
+    public TestAUpdate() {
+        super();
+        LOG.trace("");
+    }
+
+    @Test
+    public void test() {
+        LOG.trace("");
+        EntityManagerFactory emf = null;
+        EntityManager em = null;
+        try {
+            List<User> users = new ArrayList<>();
+            users.add(new User(null, null, "email_" + 1, new ArrayList<>()));
+            users.add(new User(null, null, "email_" + 2, new ArrayList<>()));
+
+            emf = createEntityManagerFactory(new HashMap<>(), DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS);
+
+            em = emf.createEntityManager();
+            new HibernateRepository<>(User.class, Long.class, em).save(users);
+            em.close();
+
+            users.stream().forEach(u -> u.setEmail(u.getEmail() + "_updated"));
+
+            em = emf.createEntityManager();
+            new HibernateRepository<>(User.class, Long.class, em).updateTrusted(users);
+            em.close();
+
+            em = emf.createEntityManager();
+            for (User user : users) {
+                assertEquals(user.getEmail(), em.find(User.class, user.getId()).getEmail());
+            }
+            em.clear();
+            em.close();
+
+            User missing = new User(Long.MAX_VALUE, null, "email_missing", new ArrayList<>());
+            em = emf.createEntityManager();
+            try {
+                new HibernateRepository<>(User.class, Long.class, em).updateTrusted(Collections.singletonList(missing));
+                fail("missing row not detected");
+            } catch (StaleObjectStateException e) {
+                LOG.trace("");
+            }
+            em.close();
+
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            if (emf != null && emf.isOpen()) {
+                emf.close();
+            }
+        }
+    }
+
+    @Test
+    public void testUpsert() {
+        LOG.trace("");
+        EntityManagerFactory emf = null;
+        EntityManager em = null;
+        try {
+            Map<String, Object> properties = new HashMap<>();
+            properties.put(Settings.MULTI_ROW_UPSERT, true);
+            emf = createEntityManagerFactory(properties, DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS);
+
+            // vetoed updates never reach the persister, so the buffered
+            // upserts are written at the end of the flush
+            PreUpdateEventListener veto = event -> User.class.cast(event.getEntity()).getEmail().endsWith("_veto");
+            emf
+            .unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry()
+            .getService(EventListenerRegistry.class)
+            .appendListeners(EventType.PRE_UPDATE, veto);
+
+            List<User> users = new ArrayList<>();
+            for (int i = 1; i <= 3; i++) {
+                users.add(new User(null, null, "upsert_" + i, new ArrayList<>()));
+            }
+            em = emf.createEntityManager();
+            new HibernateRepository<>(User.class, Long.class, em).save(users);
+            em.close();
+
+            em = emf.createEntityManager();
+            em.getTransaction().begin();
+            em.find(User.class, users.get(0).getId()).setEmail("upsert_1_updated");
+            em.find(User.class, users.get(1).getId()).setEmail("upsert_2_updated");
+            em.find(User.class, users.get(2).getId()).setEmail("upsert_3_veto");
+            em.getTransaction().commit();
+            em.close();
+
+            em = emf.createEntityManager();
+            assertEquals("upsert_1_updated", em.find(User.class, users.get(0).getId()).getEmail());
+            assertEquals("upsert_2_updated", em.find(User.class, users.get(1).getId()).getEmail());
+            assertEquals("upsert_3", em.find(User.class, users.get(2).getId()).getEmail());
+            em.close();
+
+            // partial flush before a query on the same table
+            em = emf.createEntityManager();
+            em.setFlushMode(FlushModeType.AUTO);
+            em.getTransaction().begin();
+            em.find(User.class, users.get(0).getId()).setEmail("upsert_1_auto");
+            em.find(User.class, users.get(2).getId()).setEmail("upsert_3_auto_veto");
+            List<User> found = em
+            .createQuery("select u from User u where u.email = :email", User.class)
+            .setParameter("email", "upsert_1_auto")
+            .getResultList();
+            assertEquals(1, found.size());
+            em.getTransaction().commit();
+            em.close();
+
+            em = emf.createEntityManager();
+            assertEquals("upsert_1_auto", em.find(User.class, users.get(0).getId()).getEmail());
+            assertEquals("upsert_3", em.find(User.class, users.get(2).getId()).getEmail());
+            em.close();
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            if (emf != null && emf.isOpen()) {
+                emf.close();
+            }
+        }
+    }
+
+    private EntityManagerFactory createEntityManagerFactory(
+            Map<String, Object> properties,
+            String dataSourcePrefix,
+            String jpaPrefix,
+            String... dataSourceIgnoreKeys
+    ) {
+        LOG.trace("");
+        try {
+            Map<String, Object> configMap = ConfigGroovyUtils.toMap(ClassPathUtils.toString("config-test.groovy"));
+
+            DataSource dataSource = DataSourceUtils
+            .createDataSource(
+                ConfigGroovyUtils.retrieveProperties(configMap, dataSourcePrefix, dataSourceIgnoreKeys)
+            );
+
+            Map<String, DataSource> dataSourceMap = new ConcurrentHashMap<>();
+            dataSourceMap.put("any", dataSource);
+
+            Map<String, Object> jpaProperties = ConfigGroovyUtils.retrieveProperties(configMap, jpaPrefix);
+            jpaProperties.putAll(properties);
+
+            return EntityManagerFactoryUtils
+            .createEntityManagerFactory(
+                    dataSourceMap,
+                    jpaProperties,
+                    User.class,
+                    Order.class,
+                    Item.class
+            );
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        }
+    }
+
+}
@@ -0,0 +1,172 @@
+package com.exqudens.hibernate.test;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exqudens.hibernate.test.util.ClassPathUtils;
+import com.exqudens.hibernate.test.util.ConfigGroovyUtils;
+import com.exqudens.hibernate.test.util.DataSourceUtils;
+import com.exqudens.hibernate.util.EntityManagerFactoryUtils;
+
+public class TestBInsertThroughput {
+
+    private static final Logger LOG;
+    private static final String DS_PREFIX;
+    private static final String JPA_PREFIX;
+    private static final String[] DS_IGNORE_KEYS;
+    private static final int USERS;
+    private static final int ORDERS_PER_USER;
+    private static final int ITEMS_PER_ORDER;
+
+    static {
+        LOG = LoggerFactory.getLogger(TestBInsertThroughput.class);
+        LOG.trace("");
+        DS_PREFIX = "dataSources.exqudensHibernateDataSource.";
+        JPA_PREFIX = "jpaProviders.hibernateJpaProvider.properties.";
+        DS_IGNORE_KEYS = new String[] {"host", "port", "dbName", "jdbcUrlParams"};
+        USERS = 100;
+        ORDERS_PER_USER = 10;
+        ITEMS_PER_ORDER = 10;
+    }
+
+    public TestBInsertThroughput() {
+        super();
+        LOG.trace("");
+    }
+
+    /**
+     * Opt-in benchmark, runs only with {@code -Dexqudens.benchmark=true}.
+     */
+    @Test
+    public void test() {
+        LOG.trace("");
+        Assume.assumeTrue(Boolean.getBoolean("exqudens.benchmark"));
+        run("identity", this::persistA, com.exqudens.hibernate.test.model.a.User.class, com.exqudens.hibernate.test.model.a.Order.class, com.exqudens.hibernate.test.model.a.Item.class);
+        run("pooled-table", this::persistB, com.exqudens.hibernate.test.model.b.User.class, com.exqudens.hibernate.test.model.b.Order.class, com.exqudens.hibernate.test.model.b.Item.class);
+    }
+
+    private void run(String strategy, Consumer<EntityManager> persist, Class<?>... classes) {
+        LOG.trace("");
+        EntityManagerFactory emf = null;
+        EntityManager em = null;
+        try {
+            emf = createEntityManagerFactory(DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS, classes);
+
+            // warm up
+            em = emf.createEntityManager();
+            persist.accept(em);
+            flush(em);
+            em.close();
+
+            long start = System.nanoTime();
+            em = emf.createEntityManager();
+            persist.accept(em);
+            flush(em);
+            em.close();
+            long nanos = System.nanoTime() - start;
+
+            int rows = USERS + USERS * ORDERS_PER_USER + USERS * ORDERS_PER_USER * ITEMS_PER_ORDER;
+            LOG.info(
+                    "strategy: {}, rows: {}, millis: {}, rows/s: {}",
+                    strategy,
+                    rows,
+                    TimeUnit.NANOSECONDS.toMillis(nanos),
+                    rows * 1_000_000_000L / Math.max(nanos, 1)
+            );
+        } catch (RuntimeException e) {
+            if (em != null && em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            if (emf != null && emf.isOpen()) {
+                emf.close();
+            }
+        }
+    }
+
+    private void flush(EntityManager em) {
+        em.getTransaction().begin();
+        em.flush();
+        em.getTransaction().commit();
+        em.clear();
+    }
+
+    private void persistA(EntityManager em) {
+        for (int u = 0; u < USERS; u++) {
+            com.exqudens.hibernate.test.model.a.User user = new com.exqudens.hibernate.test.model.a.User(null, null, "email_" + u, new ArrayList<>());
+            for (int o = 0; o < ORDERS_PER_USER; o++) {
+                com.exqudens.hibernate.test.model.a.Order order = new com.exqudens.hibernate.test.model.a.Order(null, null, "orderNumber_" + o, user, new ArrayList<>());
+                for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+                    order.getItems().add(new com.exqudens.hibernate.test.model.a.Item(null, null, "description_" + i, order, null, new ArrayList<>()));
+                }
+                user.getOrders().add(order);
+            }
+            em.persist(user);
+        }
+    }
+
+    private void persistB(EntityManager em) {
+        for (int u = 0; u < USERS; u++) {
+            com.exqudens.hibernate.test.model.b.User user = new com.exqudens.hibernate.test.model.b.User(null, null, "email_" + u, new ArrayList<>());
+            for (int o = 0; o < ORDERS_PER_USER; o++) {
+                com.exqudens.hibernate.test.model.b.Order order = new com.exqudens.hibernate.test.model.b.Order(null, null, "orderNumber_" + o, user, new ArrayList<>());
+                for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+                    order.getItems().add(new com.exqudens.hibernate.test.model.b.Item(null, null, "description_" + i, order, null, new ArrayList<>()));
+                }
+                user.getOrders().add(order);
+            }
+            em.persist(user);
+        }
+    }
+
+    private EntityManagerFactory createEntityManagerFactory(
+            String dataSourcePrefix,
+            String jpaPrefix,
+            String[] dataSourceIgnoreKeys,
+            Class<?>... classes
+    ) {
+        LOG.trace("");
+        try {
+            Map<String, Object> configMap = ConfigGroovyUtils.toMap(ClassPathUtils.toString("config-test.groovy"));
+
+            DataSource dataSource = DataSourceUtils
+            .createDataSource(
+                ConfigGroovyUtils.retrieveProperties(configMap, dataSourcePrefix, dataSourceIgnoreKeys)
+            );
+
+            Map<String, DataSource> dataSourceMap = new ConcurrentHashMap<>();
+            dataSourceMap.put("any", dataSource);
+
+            return EntityManagerFactoryUtils
+            .createEntityManagerFactory(
+                    dataSourceMap,
+                    ConfigGroovyUtils.retrieveProperties(configMap, jpaPrefix),
+                    classes
+            );
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        }
+    }
+
+}
@@ -0,0 +1,166 @@
+package com.exqudens.hibernate.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exqudens.hibernate.integrator.IntegratorImpl;
+import com.exqudens.hibernate.test.model.a.Item;
+import com.exqudens.hibernate.test.model.a.Order;
+import com.exqudens.hibernate.test.model.a.User;
+import com.exqudens.hibernate.test.util.ClassPathUtils;
+import com.exqudens.hibernate.test.util.ConfigGroovyUtils;
+import com.exqudens.hibernate.test.util.DataSourceUtils;
+import com.exqudens.hibernate.util.EntityManagerFactoryUtils;
+import com.exqudens.hibernate.util.SortUtils;
+import com.exqudens.hibernate.util.WriteOrder;
+
+public class TestBIntegrator {
+
+    private static final Logger LOG;
+    private static final String DS_PREFIX;
+    private static final String JPA_PREFIX;
+    private static final String[] DS_IGNORE_KEYS;
+
+    static {
+        LOG = LoggerFactory.getLogger(TestBIntegrator.class);
+        LOG.trace("");
+        DS_PREFIX = "dataSources.exqudensHibernateDataSource.";
+        JPA_PREFIX = "jpaProviders.hibernateJpaProvider.properties.";
+        DS_IGNORE_KEYS = new String[] {"host", "port", "dbName", "jdbcUrlParams"};
+    }
+
+    public TestBIntegrator() {
+        super();
+        LOG.trace("");
+    }
+
+    @Test
+    public void testTwoFactories() {
+        LOG.trace("");
+        EntityManagerFactory emfA = null;
+        EntityManagerFactory emfB = null;
+        EntityManager em = null;
+        try {
+            emfA = createEntityManagerFactory(DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS, User.class, Order.class, Item.class);
+            emfB = createEntityManagerFactory(
+                    DS_PREFIX,
+                    JPA_PREFIX,
+                    DS_IGNORE_KEYS,
+                    com.exqudens.hibernate.test.model.b.User.class,
+                    com.exqudens.hibernate.test.model.b.Order.class,
+                    com.exqudens.hibernate.test.model.b.Item.class
+            );
+            SessionFactoryImplementor factoryA = emfA.unwrap(SessionFactoryImplementor.class);
+            SessionFactoryImplementor factoryB = emfB.unwrap(SessionFactoryImplementor.class);
+
+            // each factory keeps its own write order
+            WriteOrder writeOrderA = IntegratorImpl.INSTANCE.getWriteOrder(factoryA);
+            WriteOrder writeOrderB = IntegratorImpl.INSTANCE.getWriteOrder(factoryB);
+            assertTrue(writeOrderA.getRank(User.class.getName()) < writeOrderA.getRank(Order.class.getName()));
+            assertTrue(writeOrderA.getRank(Order.class.getName()) < writeOrderA.getRank(Item.class.getName()));
+            assertEquals(-1, writeOrderA.getRank(com.exqudens.hibernate.test.model.b.User.class.getName()));
+            assertTrue(writeOrderB.getRank(com.exqudens.hibernate.test.model.b.User.class.getName()) >= 0);
+            assertEquals(-1, writeOrderB.getRank(User.class.getName()));
+            assertNull(IntegratorImpl.INSTANCE.getMetadata());
+
+            // closing one factory leaves the other one's state in place
+            emfB.close();
+            assertSame(writeOrderA, IntegratorImpl.INSTANCE.getWriteOrder(factoryA));
+            assertSame(WriteOrder.EMPTY, IntegratorImpl.INSTANCE.getWriteOrder(factoryB));
+            assertSame(IntegratorImpl.INSTANCE.getMetadata(factoryA), IntegratorImpl.INSTANCE.getMetadata());
+
+            em = emfA.createEntityManager();
+            SharedSessionContractImplementor session = em.unwrap(SharedSessionContractImplementor.class);
+            List<Object> entities = new ArrayList<>();
+            User user = new User(1L, null, "email_1", new ArrayList<>());
+            entities.add(user);
+            for (int o = 0; o < 3; o++) {
+                Order order = new Order(10L + o, null, "orderNumber_" + o, user, new ArrayList<>());
+                entities.add(order);
+                for (int i = 0; i < 3; i++) {
+                    entities.add(new Item(100L + o * 10 + i, null, "description_" + i, order, null, new ArrayList<>()));
+                }
+            }
+            Collections.shuffle(entities, new Random(1));
+            List<Object> sorted = new ArrayList<>();
+            SortUtils.sort(entities, session).forEach(sorted::addAll);
+            assertEquals(entities.size(), sorted.size());
+            for (Object entity : sorted) {
+                if (entity instanceof Order) {
+                    assertTrue(sorted.indexOf(Order.class.cast(entity).getUser()) < sorted.indexOf(entity));
+                } else if (entity instanceof Item) {
+                    assertTrue(sorted.indexOf(Item.class.cast(entity).getOrder()) < sorted.indexOf(entity));
+                }
+            }
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            if (emfB != null && emfB.isOpen()) {
+                emfB.close();
+            }
+            if (emfA != null && emfA.isOpen()) {
+                emfA.close();
+            }
+        }
+    }
+
+    private EntityManagerFactory createEntityManagerFactory(
+            String dataSourcePrefix,
+            String jpaPrefix,
+            String[] dataSourceIgnoreKeys,
+            Class<?>... classes
+    ) {
+        LOG.trace("");
+        try {
+            Map<String, Object> configMap = ConfigGroovyUtils.toMap(ClassPathUtils.toString("config-test.groovy"));
+
+            DataSource dataSource = DataSourceUtils
+            .createDataSource(
+                ConfigGroovyUtils.retrieveProperties(configMap, dataSourcePrefix, dataSourceIgnoreKeys)
+            );
+
+            Map<String, DataSource> dataSourceMap = new ConcurrentHashMap<>();
+            dataSourceMap.put("any", dataSource);
+
+            return EntityManagerFactoryUtils
+            .createEntityManagerFactory(
+                    dataSourceMap,
+                    ConfigGroovyUtils.retrieveProperties(configMap, jpaPrefix),
+                    classes
+            );
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.exqudens.hibernate.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.hibernate.Session;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exqudens.hibernate.repository.HibernateRepository;
+import com.exqudens.hibernate.test.model.c.Category;
+import com.exqudens.hibernate.test.util.ClassPathUtils;
+import com.exqudens.hibernate.test.util.ConfigGroovyUtils;
+import com.exqudens.hibernate.test.util.DataSourceUtils;
+import com.exqudens.hibernate.util.EntityManagerFactoryUtils;
+
+public class TestCInsert {
+
+    private static final Logger LOG;
+    private static final String DS_PREFIX;
+    private static final String JPA_PREFIX;
+    private static final String[] DS_IGNORE_KEYS;
+
+    static {
+        LOG = LoggerFactory.getLogger(TestCInsert.class);
+        LOG.trace("");
+        DS_PREFIX = "dataSources.exqudensHibernateDataSource.";
+        JPA_PREFIX = "jpaProviders.hibernateJpaProvider.properties.";
+        DS_IGNORE_KEYS = new String[] {"host", "port", "dbName", "jdbcUrlParams"};
+    }
+
+    public TestCInsert() {
+        super();
+        LOG.trace("");
+    }
+
+    @Test
+    public void testSelfReference() {
+        LOG.trace("");
+        EntityManagerFactory emf = null;
+        EntityManager em = null;
+        try {
+            List<Category> roots = new ArrayList<>();
+            for (int r = 0; r < 2; r++) {
+                Category root = new Category(null, "r" + r, null, new ArrayList<>());
+                for (int c = 0; c < 3; c++) {
+                    Category child = new Category(null, root.getName() + "." + c, root, new ArrayList<>());
+                    for (int g = 0; g < 2; g++) {
+                        child.getChildren().add(new Category(null, child.getName() + "." + g, child, new ArrayList<>()));
+                    }
+                    root.getChildren().add(child);
+                }
+                roots.add(root);
+            }
+
+            emf = createEntityManagerFactory(DS_PREFIX, JPA_PREFIX, DS_IGNORE_KEYS, Category.class);
+
+            // children are pending while their parents still have delayed ids
+            em = emf.createEntityManager();
+            em.unwrap(Session.class).setJdbcBatchSize(4);
+            new HibernateRepository<>(Category.class, Long.class, em).save(roots);
+            em.close();
+
+            em = emf.createEntityManager();
+            List<Category> categories = em.createQuery("from Category", Category.class).getResultList();
+            assertEquals(20, categories.size());
+            for (Category category : categories) {
+                int dot = category.getName().lastIndexOf('.');
+                if (dot < 0) {
+                    assertNull(category.getParent());
+                } else {
+                    assertEquals(category.getName().substring(0, dot), category.getParent().getName());
+                }
+            }
+            em.close();
+
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            if (emf != null && emf.isOpen()) {
+                emf.close();
+            }
+        }
+    }
+
+    private EntityManagerFactory createEntityManagerFactory(
+            String dataSourcePrefix,
+            String jpaPrefix,
+            String[] dataSourceIgnoreKeys,
+            Class<?>... classes
+    ) {
+        LOG.trace("");
+        try {
+            Map<String, Object> configMap = ConfigGroovyUtils.toMap(ClassPathUtils.toString("config-test.groovy"));
+
+            DataSource dataSource = DataSourceUtils
+            .createDataSource(
+                ConfigGroovyUtils.retrieveProperties(configMap, dataSourcePrefix, dataSourceIgnoreKeys)
+            );
+
+            Map<String, DataSource> dataSourceMap = new ConcurrentHashMap<>();
+            dataSourceMap.put("any", dataSource);
+
+            return EntityManagerFactoryUtils
+            .createEntityManagerFactory(
+                    dataSourceMap,
+                    ConfigGroovyUtils.retrieveProperties(configMap, jpaPrefix),
+                    classes
+            );
+        } catch (RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        }
+    }
+
+}
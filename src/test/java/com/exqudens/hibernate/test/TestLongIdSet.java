@@ -0,0 +1,88 @@
+package com.exqudens.hibernate.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.exqudens.hibernate.util.LongIdSet;
+
+public class TestLongIdSet {
+
+    @Test
+    public void testOf() {
+        Random random = new Random(1);
+        long[] ids = new long[10_000];
+        TreeSet<Long> expected = new TreeSet<>();
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = random.nextInt(20_000) - 1_000;
+            expected.add(ids[i]);
+        }
+        LongIdSet set = LongIdSet.of(ids);
+        assertEquals(expected.size(), set.size());
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), set.toArray());
+        for (long value = -1_100; value < 19_100; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+        // dense ids take about one byte each
+        assertTrue(set.getByteCount() < set.size() * 2L);
+    }
+
+    @Test
+    public void testExtremes() {
+        long[] ids = new long[] {Long.MAX_VALUE, Long.MIN_VALUE, 0, -1, 1, Long.MAX_VALUE};
+        LongIdSet set = LongIdSet.of(ids);
+        assertArrayEquals(new long[] {Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE}, set.toArray());
+        assertTrue(set.contains(Long.MIN_VALUE));
+        assertTrue(set.contains(Long.MAX_VALUE));
+        assertFalse(set.contains(2));
+
+        LongIdSet empty = LongIdSet.of(new long[0]);
+        assertTrue(empty.isEmpty());
+        assertFalse(empty.contains(0));
+        assertFalse(empty.iterator().hasNext());
+    }
+
+    @Test
+    public void testIterator() {
+        long[] ids = new long[1000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i * 3L;
+        }
+        LongIdSet set = LongIdSet.of(ids);
+        for (int from : new int[] {0, 1, LongIdSet.BLOCK_SIZE - 1, LongIdSet.BLOCK_SIZE, 999, 1000, 2000}) {
+            PrimitiveIterator.OfLong iterator = set.iterator(from);
+            for (int i = from; i < ids.length; i++) {
+                assertEquals(ids[i], iterator.nextLong());
+            }
+            assertFalse(iterator.hasNext());
+        }
+        long[] chunk = new long[300];
+        assertEquals(300, set.toArray(200, chunk));
+        assertArrayEquals(Arrays.copyOfRange(ids, 200, 500), chunk);
+        assertEquals(100, set.toArray(900, chunk));
+    }
+
+    @Test
+    public void testUnionMinus() {
+        LongIdSet a = LongIdSet.of(new long[] {1, 3, 5, 7, 9});
+        LongIdSet b = LongIdSet.of(new long[] {2, 3, 4, 9, 11});
+        assertArrayEquals(new long[] {1, 2, 3, 4, 5, 7, 9, 11}, LongIdSet.union(a, b).toArray());
+        assertArrayEquals(new long[] {1, 5, 7}, LongIdSet.minus(a, b).toArray());
+        assertArrayEquals(new long[] {2, 4, 11}, LongIdSet.minus(b, a).toArray());
+        assertTrue(LongIdSet.minus(a, a).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuilderNotAscending() {
+        new LongIdSet.Builder().add(2).add(1);
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.exqudens.hibernate.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.exqudens.hibernate.util.LongIdSet;
+import com.exqudens.hibernate.util.RangeUtils;
+
+public class TestRangeUtils {
+
+    @Test
+    public void testCompact() {
+        // run 10..19 with a duplicate, short run 30..32, singles 40 and 50
+        long[] sorted = new long[] {10, 11, 12, 12, 13, 14, 15, 16, 17, 18, 19, 30, 31, 32, 40, 50};
+        RangeUtils.Ranges ranges = RangeUtils.compact(sorted, 5, 100);
+        assertEquals(1, ranges.getRangeCount());
+        assertEquals(10, ranges.getStart(0));
+        assertEquals(19, ranges.getEnd(0));
+        assertArrayEquals(new long[] {30, 31, 32, 40, 50}, ranges.getSingles());
+        assertTrue(ranges.isInRange(10));
+        assertTrue(ranges.isInRange(15));
+        assertTrue(ranges.isInRange(19));
+        assertFalse(ranges.isInRange(9));
+        assertFalse(ranges.isInRange(20));
+        assertFalse(ranges.isInRange(31));
+    }
+
+    @Test
+    public void testMaxRangeLength() {
+        long[] sorted = new long[25];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = 100 + i;
+        }
+        RangeUtils.Ranges ranges = RangeUtils.compact(sorted, 5, 10);
+        assertEquals(3, ranges.getRangeCount());
+        assertEquals(100, ranges.getStart(0));
+        assertEquals(109, ranges.getEnd(0));
+        assertEquals(110, ranges.getStart(1));
+        assertEquals(119, ranges.getEnd(1));
+        assertEquals(120, ranges.getStart(2));
+        assertEquals(124, ranges.getEnd(2));
+        assertEquals(0, ranges.getSingles().length);
+    }
+
+    @Test
+    public void testEdges() {
+        RangeUtils.Ranges empty = RangeUtils.compact(new long[0], 5, 10);
+        assertEquals(0, empty.getRangeCount());
+        assertEquals(0, empty.getSingles().length);
+        assertFalse(empty.isInRange(0));
+
+        // a run across zero and a single at the end of the long range
+        RangeUtils.Ranges ranges = RangeUtils.compact(new long[] {-2, -1, 0, 1, 2, Long.MAX_VALUE}, 5, 10);
+        assertEquals(1, ranges.getRangeCount());
+        assertEquals(-2, ranges.getStart(0));
+        assertEquals(2, ranges.getEnd(0));
+        assertArrayEquals(new long[] {Long.MAX_VALUE}, ranges.getSingles());
+    }
+
+    @Test
+    public void testLongIdSetInput() {
+        Random random = new Random(1);
+        long[] ids = new long[5000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i < 3000 ? i * (random.nextInt(10) == 0 ? 2L : 1L) : random.nextInt(1_000_000);
+        }
+        LongIdSet set = LongIdSet.of(ids);
+        RangeUtils.Ranges fromArray = RangeUtils.compact(set.toArray(), 64, 1000);
+        RangeUtils.Ranges fromSet = RangeUtils.compact(set, 64, 1000);
+        assertEquals(fromArray.getRangeCount(), fromSet.getRangeCount());
+        for (int i = 0; i < fromArray.getRangeCount(); i++) {
+            assertEquals(fromArray.getStart(i), fromSet.getStart(i));
+            assertEquals(fromArray.getEnd(i), fromSet.getEnd(i));
+        }
+        assertArrayEquals(fromArray.getSingles(), fromSet.getSingles());
+
+        // every id is covered exactly once
+        long covered = fromSet.getSingles().length;
+        for (int i = 0; i < fromSet.getRangeCount(); i++) {
+            covered += fromSet.getEnd(i) - fromSet.getStart(i) + 1;
+        }
+        assertEquals(set.size(), covered);
+        for (long single : fromSet.getSingles()) {
+            assertFalse(fromSet.isInRange(single));
+        }
+    }
+
+}
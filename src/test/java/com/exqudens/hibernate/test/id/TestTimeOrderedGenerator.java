@@ -0,0 +1,140 @@
+package com.exqudens.hibernate.test.id;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.type.LongType;
+import org.hibernate.type.Type;
+import org.hibernate.type.UUIDBinaryType;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.exqudens.hibernate.id.TimeOrderedGeneratorImpl;
+
+public class TestTimeOrderedGenerator {
+
+    private static final int NODE_ID;
+
+    private static StandardServiceRegistry serviceRegistry;
+
+    static {
+        NODE_ID = 5;
+    }
+
+    @BeforeClass
+    public static void beforeClass() {
+        serviceRegistry = new StandardServiceRegistryBuilder().build();
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        StandardServiceRegistryBuilder.destroy(serviceRegistry);
+    }
+
+    @Test
+    public void testMonotonic() {
+        TimeOrderedGeneratorImpl generator = createGenerator(LongType.INSTANCE, new TimeOrderedGeneratorImpl());
+        long before = System.currentTimeMillis() - TimeOrderedGeneratorImpl.EPOCH;
+        long last = Long.MIN_VALUE;
+        for (int i = 0; i < 100_000; i++) {
+            long id = Long.class.cast(generator.generate(null, null));
+            assertTrue(id > last);
+            assertEquals(NODE_ID, (id >>> TimeOrderedGeneratorImpl.SEQUENCE_BITS) & ((1L << TimeOrderedGeneratorImpl.NODE_ID_BITS) - 1));
+            last = id;
+        }
+        long timestamp = last >>> (TimeOrderedGeneratorImpl.NODE_ID_BITS + TimeOrderedGeneratorImpl.SEQUENCE_BITS);
+        assertTrue(timestamp >= before);
+    }
+
+    @Test
+    public void testClockRegression() {
+        AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+        TimeOrderedGeneratorImpl longGenerator = createGenerator(LongType.INSTANCE, new ManualClockGenerator(clock));
+        TimeOrderedGeneratorImpl uuidGenerator = createGenerator(UUIDBinaryType.INSTANCE, new ManualClockGenerator(clock));
+
+        long longId = Long.class.cast(longGenerator.generate(null, null));
+        UUID uuid = UUID.class.cast(uuidGenerator.generate(null, null));
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+
+        // the clock jumps ten seconds back and stands still
+        clock.addAndGet(-10_000);
+        for (int i = 0; i < 10_000; i++) {
+            long nextLongId = Long.class.cast(longGenerator.generate(null, null));
+            UUID nextUuid = UUID.class.cast(uuidGenerator.generate(null, null));
+            assertTrue(nextLongId > longId);
+            assertTrue(nextUuid.compareTo(uuid) > 0);
+            longId = nextLongId;
+            uuid = nextUuid;
+        }
+    }
+
+    @Test
+    public void testContention() throws Exception {
+        TimeOrderedGeneratorImpl generator = createGenerator(LongType.INSTANCE, new TimeOrderedGeneratorImpl());
+        int threads = 8;
+        int count = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    long[] ids = new long[count];
+                    for (int i = 0; i < count; i++) {
+                        ids[i] = Long.class.cast(generator.generate(null, null));
+                    }
+                    return ids;
+                }));
+            }
+            Set<Long> all = new HashSet<>();
+            for (Future<long[]> future : futures) {
+                long[] ids = future.get();
+                for (int i = 0; i < ids.length; i++) {
+                    assertTrue(i == 0 || ids[i] > ids[i - 1]);
+                    all.add(ids[i]);
+                }
+            }
+            assertEquals(threads * count, all.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private TimeOrderedGeneratorImpl createGenerator(Type type, TimeOrderedGeneratorImpl generator) {
+        Properties params = new Properties();
+        params.setProperty(TimeOrderedGeneratorImpl.NODE_ID_PARAM, String.valueOf(NODE_ID));
+        generator.configure(type, params, serviceRegistry);
+        return generator;
+    }
+
+    private static class ManualClockGenerator extends TimeOrderedGeneratorImpl {
+
+        private final AtomicLong clock;
+
+        private ManualClockGenerator(AtomicLong clock) {
+            super();
+            this.clock = clock;
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return clock.get();
+        }
+
+    }
+
+}
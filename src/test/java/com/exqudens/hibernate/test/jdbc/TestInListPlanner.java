@@ -0,0 +1,106 @@
+package com.exqudens.hibernate.test.jdbc;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.exqudens.hibernate.jdbc.InListPlanner;
+import com.exqudens.hibernate.jdbc.ServerVariables;
+
+public class TestInListPlanner {
+
+    @Test
+    public void testMaxChunkSize() {
+        // placeholders: 65535 / 2 columns
+        InListPlanner byPlaceholders = new InListPlanner(1000, 2, 20, ServerVariables.DEFAULT, 200, false);
+        assertEquals(ServerVariables.MAX_PLACEHOLDERS / 2, byPlaceholders.getMaxChunkSize());
+
+        // packet: (65536 - 1024) / (20 + 3 + 2)
+        ServerVariables smallPacket = new ServerVariables(65536, ServerVariables.UNKNOWN_AUTOINC_LOCK_MODE, 1);
+        InListPlanner byPacket = new InListPlanner(100_000, 1, 20, smallPacket, 200, false);
+        assertEquals((65536 - 1024) / 25, byPacket.getMaxChunkSize());
+        assertEquals(byPacket.getMaxChunkSize(), byPacket.getChunkSize());
+    }
+
+    @Test
+    public void testRecord() {
+        InListPlanner planner = new InListPlanner(100, 1, 20, ServerVariables.DEFAULT, 200, false);
+        long fast = TimeUnit.MILLISECONDS.toNanos(50);
+        long slow = TimeUnit.MILLISECONDS.toNanos(500);
+        long onTarget = TimeUnit.MILLISECONDS.toNanos(150);
+
+        planner.record(100, fast);
+        assertEquals(200, planner.getChunkSize());
+        planner.record(200, onTarget);
+        assertEquals(200, planner.getChunkSize());
+        planner.record(200, slow);
+        assertEquals(100, planner.getChunkSize());
+
+        // chunks under half the current size are ignored
+        planner.record(49, slow);
+        assertEquals(100, planner.getChunkSize());
+
+        // never below one key, never above the max chunk size
+        for (int i = 0; i < 20; i++) {
+            planner.record(planner.getChunkSize(), slow);
+        }
+        assertEquals(1, planner.getChunkSize());
+        for (int i = 0; i < 40; i++) {
+            planner.record(planner.getChunkSize(), fast);
+        }
+        assertEquals(planner.getMaxChunkSize(), planner.getChunkSize());
+    }
+
+    @Test
+    public void testPlan() {
+        InListPlanner planner = new InListPlanner(4, 1, 20, ServerVariables.DEFAULT, 200, false);
+        List<List<Integer>> chunks = planner.plan(createList(10));
+        assertEquals(3, chunks.size());
+        assertEquals(createList(4), chunks.get(0));
+        assertEquals(2, chunks.get(2).size());
+        assertEquals(0, planner.plan(new ArrayList<Integer>()).size());
+    }
+
+    @Test
+    public void testPadding() {
+        InListPlanner planner = new InListPlanner(100, 1, 20, ServerVariables.DEFAULT, 200, true);
+        assertEquals(64, planner.getPlannedChunkSize());
+        assertEquals(1, planner.getBucket(1));
+        assertEquals(2, planner.getBucket(2));
+        assertEquals(4, planner.getBucket(3));
+        assertEquals(64, planner.getBucket(33));
+        assertEquals(64, planner.getBucket(64));
+
+        List<Integer> padded = planner.pad(createList(5));
+        assertEquals(8, padded.size());
+        assertEquals(createList(5), padded.subList(0, 5));
+        for (int i = 5; i < padded.size(); i++) {
+            assertEquals(Integer.valueOf(4), padded.get(i));
+        }
+        List<Integer> full = createList(8);
+        assertEquals(full, planner.pad(full));
+
+        // buckets are capped at the max chunk size
+        ServerVariables smallPacket = new ServerVariables(1024 + 25 * 100, ServerVariables.UNKNOWN_AUTOINC_LOCK_MODE, 1);
+        InListPlanner capped = new InListPlanner(1000, 1, 20, smallPacket, 200, true);
+        assertEquals(100, capped.getMaxChunkSize());
+        assertEquals(100, capped.getBucket(70));
+
+        InListPlanner unpadded = new InListPlanner(100, 1, 20, ServerVariables.DEFAULT, 200, false);
+        assertEquals(5, unpadded.pad(createList(5)).size());
+        assertEquals(100, unpadded.getPlannedChunkSize());
+    }
+
+    private List<Integer> createList(int size) {
+        List<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(i);
+        }
+        return list;
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.exqudens.hibernate.test.jdbc;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.exqudens.hibernate.jdbc.MultiRowInsert;
+import com.exqudens.hibernate.jdbc.ServerVariables;
+
+public class TestMultiRowInsert {
+
+    @Test
+    public void testToStatementString() {
+        MultiRowInsert insert = new MultiRowInsert("insert into user (email, modified) values (?, ?)");
+        assertEquals(2, insert.getRowParameterCount());
+        assertEquals("insert into user (email, modified) values (?, ?)", insert.toStatementString(1));
+        assertEquals("insert into user (email, modified) values (?, ?), (?, ?), (?, ?)", insert.toStatementString(3));
+    }
+
+    @Test
+    public void testHeadRowTail() {
+        MultiRowInsert upsert = new MultiRowInsert(
+                "insert into user (id, email) values ",
+                "(?, ?)",
+                " on duplicate key update email = values(email)"
+        );
+        assertEquals(
+                "insert into user (id, email) values (?, ?), (?, ?) on duplicate key update email = values(email)",
+                upsert.toStatementString(2)
+        );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotAnInsert() {
+        new MultiRowInsert("delete from user where id = ?");
+    }
+
+    @Test
+    public void testMaxRows() {
+        MultiRowInsert insert = new MultiRowInsert("insert into user (email) values (?)");
+
+        // batch size bound
+        assertEquals(1000, insert.getMaxRows(1000, 20, ServerVariables.DEFAULT_MAX_ALLOWED_PACKET));
+
+        // packet bound: head plus rows of 20 literal bytes and "(?), "
+        long packet = insert.getHeadLength() + 10 * (20 + insert.getRowLength());
+        assertEquals(10, insert.getMaxRows(1000, 20, packet));
+
+        // placeholder bound
+        assertEquals(ServerVariables.MAX_PLACEHOLDERS, insert.getMaxRows(100_000, 1, Long.MAX_VALUE / 2));
+
+        // never less than one row
+        assertEquals(1, insert.getMaxRows(0, 20, 10));
+    }
+
+}
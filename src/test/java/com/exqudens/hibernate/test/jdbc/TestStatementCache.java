@@ -0,0 +1,143 @@
+package com.exqudens.hibernate.test.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.exqudens.hibernate.jdbc.StatementCache;
+
+public class TestStatementCache {
+
+    private final List<String> cleared = new ArrayList<>();
+
+    @Test
+    public void testHitAndMiss() throws SQLException {
+        List<PreparedStatement> prepared = new ArrayList<>();
+        Connection connection = createConnection(prepared);
+        StatementCache cache = new StatementCache(4);
+
+        PreparedStatement a = cache.prepareStatement(connection, "insert a", Statement.RETURN_GENERATED_KEYS);
+        assertSame(a, cache.prepareStatement(connection, "insert a", Statement.RETURN_GENERATED_KEYS));
+        assertEquals(Arrays.asList("clearParameters", "clearBatch"), cleared);
+        assertNotSame(a, cache.prepareStatement(connection, "insert a", Statement.NO_GENERATED_KEYS));
+        assertEquals(2, prepared.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        // a statement closed by someone else is prepared again
+        a.close();
+        PreparedStatement reprepared = cache.prepareStatement(connection, "insert a", Statement.RETURN_GENERATED_KEYS);
+        assertNotSame(a, reprepared);
+        assertFalse(reprepared.isClosed());
+
+        cache.close();
+        for (PreparedStatement ps : prepared) {
+            assertTrue(ps.isClosed());
+        }
+    }
+
+    @Test
+    public void testEviction() throws SQLException {
+        List<PreparedStatement> prepared = new ArrayList<>();
+        Connection connection = createConnection(prepared);
+        StatementCache cache = new StatementCache(2);
+
+        PreparedStatement a = cache.prepareStatement(connection, "a", Statement.NO_GENERATED_KEYS);
+        PreparedStatement b = cache.prepareStatement(connection, "b", Statement.NO_GENERATED_KEYS);
+        // touch a, so b is the least recently used one
+        cache.prepareStatement(connection, "a", Statement.NO_GENERATED_KEYS);
+        cache.prepareStatement(connection, "c", Statement.NO_GENERATED_KEYS);
+        assertTrue(b.isClosed());
+        assertFalse(a.isClosed());
+        assertSame(a, cache.prepareStatement(connection, "a", Statement.NO_GENERATED_KEYS));
+    }
+
+    @Test
+    public void testEvict() throws SQLException {
+        List<PreparedStatement> prepared = new ArrayList<>();
+        Connection connection = createConnection(prepared);
+        StatementCache cache = new StatementCache(4);
+
+        PreparedStatement a = cache.prepareStatement(connection, "a", Statement.NO_GENERATED_KEYS);
+        cache.evict(a);
+        assertTrue(a.isClosed());
+        assertNotSame(a, cache.prepareStatement(connection, "a", Statement.NO_GENERATED_KEYS));
+        assertEquals(2, prepared.size());
+    }
+
+    @Test
+    public void testConnectionChange() throws SQLException {
+        List<PreparedStatement> prepared1 = new ArrayList<>();
+        List<PreparedStatement> prepared2 = new ArrayList<>();
+        Connection connection1 = createConnection(prepared1);
+        Connection connection2 = createConnection(prepared2);
+        StatementCache cache = new StatementCache(4);
+
+        PreparedStatement a1 = cache.prepareStatement(connection1, "a", Statement.NO_GENERATED_KEYS);
+        PreparedStatement a2 = cache.prepareStatement(connection2, "a", Statement.NO_GENERATED_KEYS);
+        assertNotSame(a1, a2);
+        assertTrue(a1.isClosed());
+        assertFalse(a2.isClosed());
+        assertEquals(1, prepared2.size());
+    }
+
+    private Connection createConnection(List<PreparedStatement> prepared) {
+        return (Connection) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    if ("prepareStatement".equals(method.getName())) {
+                        PreparedStatement ps = createPreparedStatement();
+                        prepared.add(ps);
+                        return ps;
+                    } else if ("hashCode".equals(method.getName())) {
+                        return System.identityHashCode(proxy);
+                    } else if ("equals".equals(method.getName())) {
+                        return proxy == args[0];
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }
+        );
+    }
+
+    private PreparedStatement createPreparedStatement() {
+        boolean[] closed = new boolean[1];
+        return (PreparedStatement) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] {PreparedStatement.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            closed[0] = true;
+                            return null;
+                        case "isClosed":
+                            return closed[0];
+                        case "clearParameters":
+                        case "clearBatch":
+                            cleared.add(method.getName());
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                }
+        );
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.exqudens.hibernate.test.model.b;
+
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.CascadeType;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.GenericGenerator;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@ToString(of = {"id", "modified", "description", "children"})
+@Entity
+@Table(name = "item")
+public class Item {
+
+    @GenericGenerator(name = "item_id", strategy = "pooled-table")
+    @GeneratedValue(generator = "item_id")
+    @Id
+    @Column(name = "item_id")
+    private Long id;
+
+    @Column(
+        name = "modified",
+        nullable = false,
+        columnDefinition = "timestamp default current_timestamp on update current_timestamp",
+        insertable = false,
+        updatable = false
+    )
+    private Date modified;
+
+    @Column(name = "description")
+    private String description;
+
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "order_id")
+    @Fetch(FetchMode.SELECT)
+    private Order order;
+
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "parent_id", insertable = false)
+    @Fetch(FetchMode.SELECT)
+    private Item parent;
+
+    @OneToMany(mappedBy = "parent", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @Fetch(FetchMode.SELECT)
+    private List<Item> children;
+
+}
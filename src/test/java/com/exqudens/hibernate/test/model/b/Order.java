@@ -0,0 +1,63 @@
+package com.exqudens.hibernate.test.model.b;
+
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.CascadeType;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.GenericGenerator;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@ToString(of = {"id", "modified", "orderNumber", "items"})
+@Entity
+@Table(name = "order")
+public class Order {
+
+    @GenericGenerator(name = "order_id", strategy = "pooled-table")
+    @GeneratedValue(generator = "order_id")
+    @Id
+    @Column(name = "order_id")
+    private Long id;
+
+    @Column(
+        name = "modified",
+        nullable = false,
+        columnDefinition = "timestamp default current_timestamp on update current_timestamp",
+        insertable = false,
+        updatable = false
+    )
+    private Date modified;
+
+    @Column(name = "order_number")
+    private String orderNumber;
+
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "user_id")
+    @Fetch(FetchMode.SELECT)
+    private User user;
+
+    @OneToMany(mappedBy = "order", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @Fetch(FetchMode.SELECT)
+    private List<Item> items;
+
+}
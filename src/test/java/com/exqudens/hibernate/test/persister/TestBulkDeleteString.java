@@ -0,0 +1,43 @@
+package com.exqudens.hibernate.test.persister;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.exqudens.hibernate.persister.SingleTableEntityPersisterImpl;
+
+public class TestBulkDeleteString {
+
+    @Test
+    public void testSingleColumnKey() {
+        assertEquals(
+                "delete from item where id in (?, ?, ?)",
+                SingleTableEntityPersisterImpl.generateBulkDeleteString("item", new String[] {"id"}, 3, false)
+        );
+        assertEquals(
+                "delete from item where id in (?)",
+                SingleTableEntityPersisterImpl.generateBulkDeleteString("item", new String[] {"id"}, 1, true)
+        );
+    }
+
+    @Test
+    public void testRowValueInList() {
+        assertEquals(
+                "delete from order_line where (order_id, line_no) in ((?, ?), (?, ?))",
+                SingleTableEntityPersisterImpl.generateBulkDeleteString("order_line", new String[] {"order_id", "line_no"}, 2, true)
+        );
+        assertEquals(
+                "delete from t where (a, b, c) in ((?, ?, ?))",
+                SingleTableEntityPersisterImpl.generateBulkDeleteString("t", new String[] {"a", "b", "c"}, 1, true)
+        );
+    }
+
+    @Test
+    public void testOrOfConjunctions() {
+        assertEquals(
+                "delete from order_line where (order_id = ? and line_no = ?) or (order_id = ? and line_no = ?)",
+                SingleTableEntityPersisterImpl.generateBulkDeleteString("order_line", new String[] {"order_id", "line_no"}, 2, false)
+        );
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.exqudens.hibernate.test.persister;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.exqudens.hibernate.persister.PropertyMaskCache;
+
+public class TestPropertyMaskCache {
+
+    @Test
+    public void testGetPut() {
+        PropertyMaskCache<String> cache = new PropertyMaskCache<>(PropertyMaskCache.DEFAULT_SIZE);
+        boolean[] mask = new boolean[] {true, false, true};
+        assertNull(cache.get(mask));
+        cache.put(mask, "a");
+        assertEquals("a", cache.get(mask));
+        assertEquals("a", cache.get(new boolean[] {true, false, true}));
+
+        // same bits, different length
+        assertNull(cache.get(new boolean[] {true, false, true, false}));
+        assertNull(cache.get(new boolean[] {true, true, true}));
+    }
+
+    @Test
+    public void testWideMasks() {
+        PropertyMaskCache<Integer> cache = new PropertyMaskCache<>(PropertyMaskCache.DEFAULT_SIZE);
+        boolean[] a = new boolean[130];
+        boolean[] b = new boolean[130];
+        a[0] = true;
+        a[64] = true;
+        b[0] = true;
+        b[128] = true;
+        cache.put(a, 1);
+        cache.put(b, 2);
+        assertEquals(Integer.valueOf(1), cache.get(a.clone()));
+        assertEquals(Integer.valueOf(2), cache.get(b.clone()));
+    }
+
+    @Test
+    public void testBounded() {
+        PropertyMaskCache<Integer> cache = new PropertyMaskCache<>(4);
+        Random random = new Random(1);
+        boolean[][] masks = new boolean[100][];
+        for (int i = 0; i < masks.length; i++) {
+            masks[i] = new boolean[20];
+            for (int j = 0; j < masks[i].length; j++) {
+                masks[i][j] = random.nextBoolean();
+            }
+            cache.put(masks[i], i);
+        }
+        // a hit is always the value put for an equal mask
+        int hits = 0;
+        for (int i = 0; i < masks.length; i++) {
+            Integer value = cache.get(masks[i]);
+            if (value != null) {
+                assertTrue(Arrays.equals(masks[i], masks[value]));
+                hits++;
+            }
+        }
+        assertTrue(hits <= 4);
+        // the last mask put is always found
+        assertEquals(Integer.valueOf(masks.length - 1), cache.get(masks[masks.length - 1]));
+    }
+
+}